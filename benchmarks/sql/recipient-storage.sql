@@ -0,0 +1,160 @@
+-- Compares the two ways the service can store notification recipients on Postgres:
+--
+--   join_table  notifications + notification_recipients, the default @ElementCollection mapping
+--   array       notifications.recipients text[] with a GIN index, the recipients-array profile
+--
+-- For each tournament size it builds both layouts in a scratch schema, then reports the
+-- insert cost per notification, the on-disk size of tables plus indexes, and the latency
+-- of the inbox query for a sample of participants. Queries mirror what Hibernate issues:
+-- MEMBER OF becomes an IN subquery on the join table, and the eagerly fetched recipients
+-- are loaded alongside. Run it with
+--
+--   psql -X -q -f benchmarks/sql/recipient-storage.sql
+--
+-- Everything lives in the recipient_bench schema, which is dropped at the end.
+
+DROP SCHEMA IF EXISTS recipient_bench CASCADE;
+CREATE SCHEMA recipient_bench;
+SET search_path = recipient_bench;
+
+CREATE TABLE results (
+    participants int,
+    storage text,
+    metric text,
+    value numeric,
+    unit text
+);
+
+CREATE PROCEDURE run(participants int, tournaments int, notifications_per_tournament int, users int, samples int)
+LANGUAGE plpgsql AS $$
+#variable_conflict use_variable
+DECLARE
+    started timestamptz;
+    elapsed numeric;
+    notification_id uuid;
+    tournament int;
+    members text[];
+    sample text;
+    timings numeric[];
+BEGIN
+    DROP TABLE IF EXISTS jt_notification_recipients, jt_notifications, arr_notifications, rosters;
+
+    -- Same columns and indexes as the Hibernate DDL for each mapping
+    CREATE TABLE jt_notifications (
+        id uuid PRIMARY KEY,
+        tournament_id uuid NOT NULL,
+        tournament_name varchar(255) NOT NULL,
+        message varchar(255) NOT NULL,
+        type varchar(255),
+        category varchar(255),
+        created_at timestamp,
+        is_read boolean,
+        updated_at timestamp,
+        idempotency_key varchar(128) UNIQUE
+    );
+    CREATE INDEX jt_updated_at ON jt_notifications (updated_at);
+    CREATE TABLE jt_notification_recipients (
+        notification_id uuid NOT NULL REFERENCES jt_notifications (id),
+        recipient varchar(255)
+    );
+    CREATE INDEX jt_recipient ON jt_notification_recipients (recipient);
+    CREATE INDEX jt_notification ON jt_notification_recipients (notification_id);
+
+    CREATE TABLE arr_notifications (LIKE jt_notifications INCLUDING ALL, recipients text[] NOT NULL);
+    CREATE INDEX arr_recipients ON arr_notifications USING gin (recipients);
+
+    -- Every tournament draws its participants from a shared pool, so users sit in several inboxes
+    CREATE TABLE rosters AS
+    SELECT t AS tournament,
+           array_agg('user-' || u ORDER BY u) AS members
+    FROM generate_series(1, tournaments) t,
+         LATERAL (SELECT DISTINCT (random() * (users - 1))::int AS u
+                  FROM generate_series(1, participants * 2)
+                  WHERE t IS NOT NULL -- correlated, so every tournament draws its own roster
+                  LIMIT participants) picks
+    GROUP BY t;
+
+    -- Insert cost, one notification at a time as the service does
+    started := clock_timestamp();
+    FOR tournament, members IN SELECT r.tournament, r.members FROM rosters r LOOP
+        FOR i IN 1..notifications_per_tournament LOOP
+            notification_id := gen_random_uuid();
+            INSERT INTO jt_notifications (id, tournament_id, tournament_name, message, type, category,
+                                          created_at, is_read, updated_at)
+            VALUES (notification_id, gen_random_uuid(), 'Tournament ' || tournament, 'Round ' || i || ' has started',
+                    'ROUND_STARTED', 'GENERAL', now(), false, now());
+            INSERT INTO jt_notification_recipients (notification_id, recipient)
+            SELECT notification_id, unnest(members);
+        END LOOP;
+    END LOOP;
+    elapsed := extract(epoch FROM clock_timestamp() - started) * 1e6 / (tournaments * notifications_per_tournament);
+    INSERT INTO results VALUES (participants, 'join_table', 'insert per notification', round(elapsed, 1), 'us');
+
+    started := clock_timestamp();
+    FOR tournament, members IN SELECT r.tournament, r.members FROM rosters r LOOP
+        FOR i IN 1..notifications_per_tournament LOOP
+            INSERT INTO arr_notifications (id, tournament_id, tournament_name, message, type, category,
+                                           created_at, is_read, updated_at, recipients)
+            VALUES (gen_random_uuid(), gen_random_uuid(), 'Tournament ' || tournament, 'Round ' || i || ' has started',
+                    'ROUND_STARTED', 'GENERAL', now(), false, now(), members);
+        END LOOP;
+    END LOOP;
+    elapsed := extract(epoch FROM clock_timestamp() - started) * 1e6 / (tournaments * notifications_per_tournament);
+    INSERT INTO results VALUES (participants, 'array', 'insert per notification', round(elapsed, 1), 'us');
+
+    ANALYZE jt_notifications;
+    ANALYZE jt_notification_recipients;
+    ANALYZE arr_notifications;
+
+    INSERT INTO results VALUES
+        (participants, 'join_table', 'tables + indexes',
+         round((pg_total_relation_size('jt_notifications') + pg_total_relation_size('jt_notification_recipients')) / 1048576.0, 1), 'MiB'),
+        (participants, 'array', 'tables + indexes',
+         round(pg_total_relation_size('arr_notifications') / 1048576.0, 1), 'MiB');
+
+    -- Inbox latency for a sample of participants, recipients included as the eager fetch loads them
+    timings := '{}';
+    FOR sample IN SELECT m FROM rosters, unnest(rosters.members) m ORDER BY random() LIMIT samples LOOP
+        started := clock_timestamp();
+        PERFORM n.*, r.recipient
+        FROM jt_notifications n
+        JOIN jt_notification_recipients r ON r.notification_id = n.id
+        WHERE sample IN (SELECT r2.recipient FROM jt_notification_recipients r2 WHERE r2.notification_id = n.id);
+        timings := timings || (extract(epoch FROM clock_timestamp() - started) * 1e3)::numeric;
+    END LOOP;
+    INSERT INTO results
+    SELECT participants, 'join_table', 'inbox ' || label, round(percentile_cont(fraction) WITHIN GROUP (ORDER BY t)::numeric, 2), 'ms'
+    FROM unnest(timings) t, (VALUES ('p50', 0.5), ('p99', 0.99)) p(label, fraction)
+    GROUP BY label, fraction;
+
+    timings := '{}';
+    FOR sample IN SELECT m FROM rosters, unnest(rosters.members) m ORDER BY random() LIMIT samples LOOP
+        started := clock_timestamp();
+        PERFORM n.*
+        FROM arr_notifications n
+        WHERE n.recipients @> ARRAY[sample];
+        timings := timings || (extract(epoch FROM clock_timestamp() - started) * 1e3)::numeric;
+    END LOOP;
+    INSERT INTO results
+    SELECT participants, 'array', 'inbox ' || label, round(percentile_cont(fraction) WITHIN GROUP (ORDER BY t)::numeric, 2), 'ms'
+    FROM unnest(timings) t, (VALUES ('p50', 0.5), ('p99', 0.99)) p(label, fraction)
+    GROUP BY label, fraction;
+END
+$$;
+
+-- participants per tournament, tournaments, notifications per tournament, user pool, inbox samples
+CALL run(32, 200, 20, 20000, 100);
+CALL run(128, 200, 20, 20000, 100);
+CALL run(512, 200, 20, 20000, 100);
+CALL run(2048, 50, 20, 20000, 100);
+
+SELECT participants, metric,
+       max(value) FILTER (WHERE storage = 'join_table') AS join_table,
+       max(value) FILTER (WHERE storage = 'array') AS array,
+       unit
+FROM results
+GROUP BY participants, metric, unit
+ORDER BY participants, metric;
+
+RESET search_path;
+DROP SCHEMA recipient_bench CASCADE;
@@ -0,0 +1,70 @@
+package com.cs203.smucode.benchmarks;
+
+import com.cs203.smucode.audit.DeliveryAuditLog;
+import com.cs203.smucode.dto.OutgoingNotificationDTO;
+import com.cs203.smucode.handlers.EventHandler;
+import com.cs203.smucode.handlers.FanoutScheduler;
+import com.cs203.smucode.handlers.OfflineDelivery;
+import com.cs203.smucode.handlers.WriteCoalescer;
+import com.cs203.smucode.metrics.NotificationMetrics;
+import com.cs203.smucode.services.impl.NotificationServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.services.sns.SnsAsyncClient;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One broadcast through {@link EventHandler#handleEvent} to every connected recipient,
+ * with in-memory emitters that build the SSE frame but never write to a socket.
+ * The scheduler runs with no workers so every batch is sent on the benchmark thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FanoutBenchmark {
+
+    @Param({"1", "100", "10000", "100000"})
+    public int emitters;
+
+    private EventHandler eventHandler;
+    private DeliveryAuditLog deliveryAuditLog;
+    private List<String> recipients;
+    private OutgoingNotificationDTO notification;
+
+    @Setup
+    public void setUp() {
+        NotificationServiceImpl notificationService = new NotificationServiceImpl(null, null, null, Fixtures.idempotencyKeys());
+        recipients = Fixtures.recipients(emitters);
+        for (String recipient : recipients) {
+            notificationService.getEmitters().put(recipient, new Fixtures.DiscardingEmitter());
+        }
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        deliveryAuditLog = new DeliveryAuditLog(true, 1.0, 65536, registry);
+        deliveryAuditLog.start();
+        eventHandler = new EventHandler(
+                notificationService,
+                new NotificationMetrics(registry, notificationService),
+                deliveryAuditLog,
+                new FanoutScheduler(0, 256, 1024, 100, 5000, registry),
+                new OfflineDelivery(false, "", 10, 20, 16, 1024, (SnsAsyncClient) null, null, registry),
+                new WriteCoalescer(false, 5, 32, 1, 1024, registry)
+        );
+        notification = Fixtures.outgoing();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        deliveryAuditLog.stop();
+    }
+
+    @Benchmark
+    public void handleEvent() {
+        eventHandler.handleEvent(recipients, notification, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,100 @@
+package com.cs203.smucode.benchmarks;
+
+import com.cs203.smucode.constants.NotificationCategory;
+import com.cs203.smucode.constants.NotificationType;
+import com.cs203.smucode.dto.IncomingNotificationDTO;
+import com.cs203.smucode.dto.OutgoingNotificationDTO;
+import com.cs203.smucode.models.Notification;
+import com.cs203.smucode.utils.RotatingBloomFilter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sample payloads shared by the benchmarks, sized like a real tournament notification.
+ */
+final class Fixtures {
+
+    static final UUID TOURNAMENT_ID = UUID.fromString("6f1c2a8e-7d43-4b8a-9a51-0c5f3e2d1b7a");
+    static final String TOURNAMENT_NAME = "SMU Code Spring Invitational 2024";
+    static final String MESSAGE = "Round 3 of SMU Code Spring Invitational 2024 has started";
+
+    private Fixtures() {
+    }
+
+    static List<String> recipients(int count) {
+        List<String> recipients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            recipients.add("player-" + i);
+        }
+        return recipients;
+    }
+
+    static IncomingNotificationDTO incoming(int recipients) {
+        return new IncomingNotificationDTO(
+                TOURNAMENT_ID,
+                TOURNAMENT_NAME,
+                MESSAGE,
+                "round_started",
+                "general",
+                recipients(recipients),
+                null,
+                null,
+                null,
+                null
+        );
+    }
+
+    static Notification notification(int recipients) {
+        Notification notification = new Notification();
+        notification.setId(UUID.randomUUID());
+        notification.setTournamentId(TOURNAMENT_ID);
+        notification.setTournamentName(TOURNAMENT_NAME);
+        notification.setMessage(MESSAGE);
+        notification.setType(NotificationType.ROUND_STARTED);
+        notification.setCategory(NotificationCategory.GENERAL);
+        notification.setCreatedAt(LocalDateTime.now());
+        notification.setIsRead(false);
+        notification.setRecipients(recipients(recipients));
+        return notification;
+    }
+
+    static RotatingBloomFilter idempotencyKeys() {
+        return new RotatingBloomFilter(1000, 0.01, TimeUnit.MINUTES.toNanos(10));
+    }
+
+    static OutgoingNotificationDTO outgoing() {
+        return new OutgoingNotificationDTO(
+                UUID.randomUUID(),
+                TOURNAMENT_ID,
+                TOURNAMENT_NAME,
+                MESSAGE,
+                "round_started",
+                "general",
+                LocalDateTime.now(),
+                false
+        );
+    }
+
+    /**
+     * Emitter that builds the SSE frame like the real one but never touches a socket.
+     */
+    static class DiscardingEmitter extends SseEmitter {
+
+        long frames;
+
+        DiscardingEmitter() {
+            super(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            builder.build();
+            frames++;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.cs203.smucode.benchmarks;
+
+import com.cs203.smucode.security.CachingJwtDecoder;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one reconnect: RS256 verification by the plain
+ * {@link NimbusJwtDecoder} versus a hit in {@link CachingJwtDecoder} for a token it has
+ * already verified. Single-threaded, so the time per operation is the CPU per reconnect.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtDecodeBenchmark {
+
+    @Param({"1000", "50000"})
+    public int clients;
+
+    private String[] tokens;
+    private JwtDecoder uncached;
+    private JwtDecoder cached;
+    private int next;
+
+    @Setup
+    public void setUp() throws NoSuchAlgorithmException, JOSEException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        RSASSASigner signer = new RSASSASigner(keyPair.getPrivate());
+
+        tokens = new String[clients];
+        Date expiresAt = Date.from(Instant.now().plus(Duration.ofHours(1)));
+        for (int i = 0; i < clients; i++) {
+            SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.RS256), new JWTClaimsSet.Builder()
+                    .subject("player-" + i)
+                    .claim("scope", "ROLE_USER")
+                    .expirationTime(expiresAt)
+                    .build());
+            jwt.sign(signer);
+            tokens[i] = jwt.serialize();
+        }
+
+        uncached = NimbusJwtDecoder.withPublicKey((RSAPublicKey) keyPair.getPublic()).build();
+        cached = new CachingJwtDecoder(uncached, clients * 2L, Duration.ofMinutes(15), new SimpleMeterRegistry());
+        // Every client has connected once before the reconnect storm
+        for (String token : tokens) {
+            cached.decode(token);
+        }
+    }
+
+    @Benchmark
+    public Jwt verify() {
+        return uncached.decode(nextToken());
+    }
+
+    @Benchmark
+    public Jwt cachedReconnect() {
+        return cached.decode(nextToken());
+    }
+
+    private String nextToken() {
+        String token = tokens[next];
+        next = next + 1 == tokens.length ? 0 : next + 1;
+        return token;
+    }
+}
@@ -0,0 +1,67 @@
+package com.cs203.smucode.benchmarks;
+
+import com.cs203.smucode.constants.NotificationType;
+import com.cs203.smucode.dto.IncomingNotificationDTO;
+import com.cs203.smucode.dto.OutgoingNotificationDTO;
+import com.cs203.smucode.mappers.NotificationMapper;
+import com.cs203.smucode.mappers.NotificationMapperImpl;
+import com.cs203.smucode.models.Notification;
+import com.cs203.smucode.templates.NotificationTemplates;
+import com.cs203.smucode.templates.TemplateProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MapStruct conversions on the ingest path, and the enum parsing they rely on.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private static final NotificationMapper MAPPER = new NotificationMapperImpl(
+            new NotificationTemplates(new TemplateProperties("en", Map.of())));
+
+    @State(Scope.Benchmark)
+    public static class Payloads {
+
+        @Param({"1", "100", "10000"})
+        public int recipients;
+
+        IncomingNotificationDTO incoming;
+        Notification notification;
+
+        @Setup
+        public void setUp() {
+            incoming = Fixtures.incoming(recipients);
+            notification = Fixtures.notification(recipients);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class TypeNames {
+
+        // lower-case as sent by most publishers, upper-case as stored
+        @Param({"round_started", "SUSPICIOUS_BEHAVIOUR"})
+        public String type;
+    }
+
+    @Benchmark
+    public Notification incomingToNotification(Payloads payloads) {
+        return MAPPER.incomingNotificationDTOtoNotification(payloads.incoming);
+    }
+
+    @Benchmark
+    public OutgoingNotificationDTO notificationToOutgoing(Payloads payloads) {
+        return MAPPER.notificationToOutgoingNotificationDTO(payloads.notification);
+    }
+
+    @Benchmark
+    public NotificationType stringToNotificationType(TypeNames typeNames) {
+        return MAPPER.stringToNotificationType(typeNames.type);
+    }
+}
@@ -0,0 +1,40 @@
+package com.cs203.smucode.benchmarks;
+
+import com.cs203.smucode.constants.WireFormat;
+import com.cs203.smucode.dto.EncodedNotification;
+import com.cs203.smucode.dto.OutgoingNotificationDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning one outgoing notification into the SSE payload.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"JSON", "COMPACT", "CBOR"})
+    private WireFormat format;
+
+    private OutgoingNotificationDTO notification;
+
+    @Setup
+    public void setUp() {
+        notification = Fixtures.outgoing();
+    }
+
+    @Benchmark
+    public String toJson() {
+        return notification.toJson();
+    }
+
+    @Benchmark
+    public String encode() {
+        return new EncodedNotification(notification).get(format);
+    }
+}
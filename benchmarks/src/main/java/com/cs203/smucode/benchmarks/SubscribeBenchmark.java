@@ -0,0 +1,44 @@
+package com.cs203.smucode.benchmarks;
+
+import com.cs203.smucode.services.impl.NotificationServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emitter-map churn in {@link NotificationServiceImpl#subscribe(String)}: users reconnecting
+ * and replacing their previous emitter while others do the same on other threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SubscribeBenchmark {
+
+    @Param({"1000", "100000"})
+    public int users;
+
+    private NotificationServiceImpl notificationService;
+    private String[] usernames;
+
+    @Setup
+    public void setUp() {
+        // subscribe never touches the repository
+        notificationService = new NotificationServiceImpl(null, null, null, Fixtures.idempotencyKeys());
+        usernames = Fixtures.recipients(users).toArray(new String[0]);
+        for (String username : usernames) {
+            notificationService.subscribe(username);
+        }
+    }
+
+    @Benchmark
+    public SseEmitter resubscribe() {
+        String username = usernames[ThreadLocalRandom.current().nextInt(usernames.length)];
+        return notificationService.subscribe(username);
+    }
+}
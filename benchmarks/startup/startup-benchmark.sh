@@ -0,0 +1,57 @@
+#!/usr/bin/env bash
+# Time from JVM launch to the first 200 from /api/actuator/health, standard vs fast-start.
+#
+# Build first with: mvn package -Pfast-start -DskipTests -Djacoco.skip=true
+# Usage: benchmarks/startup/startup-benchmark.sh [runs] [profile]
+#
+# The default profile is "standalone" (in-memory H2, no Eureka or config server) so the
+# numbers are not dominated by the network. Pass another profile to measure against
+# real infrastructure.
+set -euo pipefail
+
+RUNS=${1:-5}
+PROFILE=${2:-standalone}
+PORT=${PORT:-18082}
+ROOT=$(cd "$(dirname "$0")/../.." && pwd)
+FAST_START="$ROOT/target/fast-start"
+JAR=$(cd "$FAST_START" && ls smucode-*-exec.jar)
+HEALTH="http://localhost:$PORT/api/actuator/health"
+
+if [[ ! -f "$FAST_START/application.jsa" ]]; then
+    echo "No CDS archive in $FAST_START, build with -Pfast-start first" >&2
+    exit 1
+fi
+
+# Prints milliseconds until the health check answers 200, then stops the JVM
+time_to_healthy() {
+    local start pid
+    start=$(date +%s%N)
+    (cd "$FAST_START" && exec java "$@" -Dserver.port="$PORT" -Dspring.profiles.active="$PROFILE" \
+        -jar "$JAR" > /dev/null 2>&1) &
+    pid=$!
+    until curl -sf -o /dev/null "$HEALTH"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "application exited before becoming healthy" >&2
+            return 1
+        fi
+        sleep 0.05
+    done
+    echo $(( ($(date +%s%N) - start) / 1000000 ))
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+}
+
+run_mode() {
+    local name=$1
+    shift
+    local total=0 ms
+    for ((i = 1; i <= RUNS; i++)); do
+        ms=$(time_to_healthy "$@")
+        total=$((total + ms))
+        printf '%-12s run %d: %6d ms\n' "$name" "$i" "$ms"
+    done
+    printf '%-12s mean : %6d ms\n\n' "$name" $((total / RUNS))
+}
+
+run_mode standard
+run_mode fast-start -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true
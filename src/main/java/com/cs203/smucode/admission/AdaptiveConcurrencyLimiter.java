@@ -0,0 +1,82 @@
+package com.cs203.smucode.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to observed latency (additive increase, multiplicative decrease).
+ *
+ * <p>While requests complete within the target latency and the limit is actually being
+ * used, the limit grows by {@code 1 / limit} per completion, so by one per window of
+ * {@code limit} completions, roughly one per round trip. When a completion is slower than the
+ * target the limit is cut by {@link #BACKOFF}, at most once per target-latency
+ * interval so a burst of slow completions does not collapse it to the minimum.
+ * </p>
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private long lastDecrease;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long targetLatencyNanos) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecrease = System.nanoTime() - targetLatencyNanos;
+    }
+
+    /**
+     * Takes a slot if fewer than {@link #getLimit()} requests are in flight
+     *
+     * @return true if admitted, in which case {@link #release(long)} must follow
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a slot and feeds the request's latency back into the limit
+     *
+     * @param latencyNanos how long the admitted request took
+     */
+    public void release(long latencyNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        onSample(latencyNanos, inFlightBefore);
+    }
+
+    private synchronized void onSample(long latencyNanos, int inFlightBefore) {
+        long now = System.nanoTime();
+        if (latencyNanos > targetLatencyNanos) {
+            if (now - lastDecrease >= targetLatencyNanos) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+                lastDecrease = now;
+            }
+        } else if (inFlightBefore * 2 >= limit) {
+            // Only grow when the current limit is actually being used
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
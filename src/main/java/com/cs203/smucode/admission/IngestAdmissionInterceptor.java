@@ -0,0 +1,139 @@
+package com.cs203.smucode.admission;
+
+import com.cs203.smucode.exception.RateLimitExceededException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for {@code POST /notifications/stream}.
+ *
+ * <p>Each publisher, identified by the subject of its system JWT, gets its own token
+ * bucket. Requests that pass it must then fit under an {@link AdaptiveConcurrencyLimiter}
+ * shared by all publishers, which shrinks when ingest latency rises above the target.
+ * Anything over either limit is rejected straight away with a 429 and a
+ * {@code Retry-After}, instead of waiting for a database connection it will not get
+ * in time.
+ * </p>
+ *
+ * <p>At most {@code notifications.admission.max-publishers} buckets are kept. A bucket
+ * left alone for as long as it takes to refill is dropped, which loses nothing since a
+ * new one starts full.
+ * </p>
+ */
+@Component
+public class IngestAdmissionInterceptor implements HandlerInterceptor {
+
+    public static final String LIMIT = "notification.admission.limit";
+    public static final String IN_FLIGHT = "notification.admission.in_flight";
+    public static final String REJECTED = "notification.admission.rejected";
+
+    private static final String STARTED_AT = IngestAdmissionInterceptor.class.getName() + ".startedAt";
+    private static final String ANONYMOUS = "anonymous";
+
+    private final boolean enabled;
+    private final double publisherRate;
+    private final double publisherBurst;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Cache<String, TokenBucket> buckets;
+    private final Counter rejectedByRate;
+    private final Counter rejectedByConcurrency;
+
+    @Autowired
+    public IngestAdmissionInterceptor(@Value("${notifications.admission.enabled:true}") boolean enabled,
+                                      @Value("${notifications.admission.initial-limit:32}") int initialLimit,
+                                      @Value("${notifications.admission.min-limit:4}") int minLimit,
+                                      @Value("${notifications.admission.max-limit:256}") int maxLimit,
+                                      @Value("${notifications.admission.target-latency-millis:250}") long targetLatencyMillis,
+                                      @Value("${notifications.admission.publisher-rate:200}") double publisherRate,
+                                      @Value("${notifications.admission.publisher-burst:400}") double publisherBurst,
+                                      @Value("${notifications.admission.max-publishers:1024}") long maxPublishers,
+                                      MeterRegistry registry) {
+        this.enabled = enabled;
+        this.publisherRate = publisherRate;
+        this.publisherBurst = publisherBurst;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxPublishers)
+                .expireAfterAccess(Duration.ofNanos((long) Math.ceil(publisherBurst / publisherRate * 1e9)))
+                .build();
+        this.limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis));
+
+        Gauge.builder(LIMIT, limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit on ingest")
+                .register(registry);
+        Gauge.builder(IN_FLIGHT, limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Ingest requests currently admitted")
+                .register(registry);
+        this.rejectedByRate = rejectedCounter(registry, "publisher_rate");
+        this.rejectedByConcurrency = rejectedCounter(registry, "concurrency");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!enabled) {
+            return true;
+        }
+
+        long waitNanos = buckets.get(publisherOf(request),
+                publisher -> new TokenBucket(publisherRate, publisherBurst)).tryConsume();
+        if (waitNanos > 0) {
+            rejectedByRate.increment();
+            throw new RateLimitExceededException("Publisher rate limit exceeded", toRetryAfterSeconds(waitNanos));
+        }
+
+        if (!limiter.tryAcquire()) {
+            rejectedByConcurrency.increment();
+            throw new RateLimitExceededException("Notification service is overloaded", 1);
+        }
+        request.setAttribute(STARTED_AT, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object startedAt = request.getAttribute(STARTED_AT);
+        if (startedAt != null) {
+            request.removeAttribute(STARTED_AT);
+            limiter.release(System.nanoTime() - (long) startedAt);
+        }
+    }
+
+    AdaptiveConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    long publisherCount() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+
+    private static String publisherOf(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal == null ? ANONYMOUS : principal.getName();
+    }
+
+    private static long toRetryAfterSeconds(long waitNanos) {
+        return Math.max(1, (long) Math.ceil(waitNanos / 1e9));
+    }
+
+    private static Counter rejectedCounter(MeterRegistry registry, String reason) {
+        return Counter.builder(REJECTED)
+                .description("Ingest requests rejected by admission control")
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
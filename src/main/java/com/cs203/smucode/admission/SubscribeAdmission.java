@@ -0,0 +1,119 @@
+package com.cs203.smucode.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Smooths reconnect storms on {@code /notifications/subscribe}.
+ *
+ * <p>Every stream starts with a {@code retry:} hint of {@code retry-millis} plus a random
+ * jitter, so clients dropped together by a restart do not come back together.
+ * </p>
+ *
+ * <p>New connections are admitted at {@code admission.rate} per second with bursts of
+ * {@code admission.burst}. Clients over that rate are queued rather than refused: each
+ * is given the next free slot, one slot per {@code 1 / rate} seconds and no further
+ * out than {@code admission.window-seconds}, and sent a stream that holds only a
+ * {@code retry:} for that slot before closing. {@code EventSource} reconnects at the
+ * given time, so setup work (JWT checks, inbox reloads) arrives at a steady rate.
+ * </p>
+ */
+@Component
+public class SubscribeAdmission {
+
+    public static final String DEFERRED = "notification.subscribe.deferred";
+
+    private final long retryMillis;
+    private final long retryJitterMillis;
+    private final boolean enabled;
+    private final TokenBucket bucket;
+    private final long slotNanos;
+    private final long windowNanos;
+    private final Counter deferred;
+
+    // Virtual time of the last slot handed out to a deferred client
+    private long lastSlot;
+    private volatile boolean closed;
+
+    @Autowired
+    public SubscribeAdmission(@Value("${notifications.subscribe.retry-millis:3000}") long retryMillis,
+                              @Value("${notifications.subscribe.retry-jitter-millis:5000}") long retryJitterMillis,
+                              @Value("${notifications.subscribe.admission.enabled:true}") boolean enabled,
+                              @Value("${notifications.subscribe.admission.rate:500}") double rate,
+                              @Value("${notifications.subscribe.admission.burst:1000}") double burst,
+                              @Value("${notifications.subscribe.admission.window-seconds:30}") long windowSeconds,
+                              MeterRegistry registry) {
+        this.retryMillis = retryMillis;
+        this.retryJitterMillis = retryJitterMillis;
+        this.enabled = enabled;
+        this.bucket = new TokenBucket(rate, burst);
+        this.slotNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        this.lastSlot = System.nanoTime();
+        this.deferred = Counter.builder(DEFERRED)
+                .description("Subscriptions told to reconnect later by admission control")
+                .register(registry);
+    }
+
+    /**
+     * Reconnect delay to send as the first frame of a new stream
+     */
+    public long retryHintMillis() {
+        return retryMillis + (retryJitterMillis > 0 ? ThreadLocalRandom.current().nextLong(retryJitterMillis + 1) : 0);
+    }
+
+    /**
+     * Decides whether a new subscription may be set up now
+     *
+     * @return 0 to admit now, otherwise how many milliseconds the client should wait before reconnecting
+     */
+    public long admit() {
+        if (closed) {
+            // Shutting down, the client's next attempt should land on another replica
+            return Math.max(1, retryHintMillis());
+        }
+        if (!enabled || bucket.tryConsume() == 0) {
+            return 0;
+        }
+        deferred.increment();
+        long now = System.nanoTime();
+        long slot;
+        synchronized (this) {
+            slot = Math.max(now, lastSlot) + slotNanos;
+            if (slot - now > windowNanos) {
+                // Queue is a full window deep, spread the overflow at random instead of growing it
+                slot = now + ThreadLocalRandom.current().nextLong(windowNanos);
+            } else {
+                lastSlot = slot;
+            }
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(slot - now));
+    }
+
+    /**
+     * Defers every subscription from now on, used while the instance drains
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * A stream that only tells the client when to come back
+     *
+     * @param retryAfterMillis delay returned by {@link #admit()}
+     */
+    public SseEmitter deferredStream(long retryAfterMillis) throws IOException {
+        SseEmitter emitter = new SseEmitter();
+        emitter.send(SseEmitter.event().reconnectTime(retryAfterMillis).comment("deferred"));
+        emitter.complete();
+        return emitter;
+    }
+}
@@ -1,25 +0,0 @@
-package com.cs203.smucode.aspects;
-
-import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.annotation.AfterThrowing;
-import org.aspectj.lang.annotation.Aspect;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Component;
-
-@Aspect
-@Component
-public class ExceptionLoggingAspect {
-
-    private static final Logger logger = LoggerFactory.getLogger(ExceptionLoggingAspect.class);
-
-    @AfterThrowing(pointcut = "execution(* com.cs203.smucode..*(..))", throwing = "exception")
-    public void logAfterThrowing(JoinPoint joinPoint, Throwable exception) {
-        logger.error("Exception in {}.{}() with cause = {}",
-                joinPoint.getSignature().getDeclaringTypeName(),
-                joinPoint.getSignature().getName(),
-                exception.getCause() != null ? exception.getCause() : "NULL");
-
-        logger.error("Exception details:", exception);
-    }
-}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.cs203.smucode.audit;
+
+import com.cs203.smucode.constants.DeliveryOutcome;
+import com.cs203.smucode.utils.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous audit log of delivery attempts.
+ *
+ * <p>The fan-out path only builds a small record and offers it to a lock-free ring
+ * buffer. A single background thread drains the buffer and writes one JSON line per
+ * record to the {@value #AUDIT_LOGGER} logger, which {@code logback-spring.xml} routes
+ * to rolling files. Successful and skipped deliveries are sampled at
+ * {@code notifications.audit.sample-rate}; failures and shed deliveries are always kept. When the buffer
+ * is full, records are dropped and counted rather than slowing delivery down.
+ * </p>
+ */
+@Component
+public class DeliveryAuditLog {
+
+    public static final String AUDIT_LOGGER = "delivery-audit";
+    public static final String DROPPED = "notification.audit.dropped";
+
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryAuditLog.class);
+    private static final Logger auditLogger = LoggerFactory.getLogger(AUDIT_LOGGER);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final MpscRingBuffer<DeliveryAuditRecord> buffer;
+    private final Counter dropped;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    @Autowired
+    public DeliveryAuditLog(@Value("${notifications.audit.enabled:true}") boolean enabled,
+                            @Value("${notifications.audit.sample-rate:1.0}") double sampleRate,
+                            @Value("${notifications.audit.buffer-size:65536}") int bufferSize,
+                            MeterRegistry registry) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.buffer = new MpscRingBuffer<>(bufferSize);
+        this.dropped = Counter.builder(DROPPED)
+                .description("Audit records dropped because the buffer was full")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drain, "delivery-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Records one delivery attempt without blocking the caller
+     *
+     * @param notificationId notification being delivered
+     * @param recipient username it was delivered to
+     * @param outcome result of the attempt
+     * @param type notification type
+     * @param category notification category
+     */
+    public void record(UUID notificationId, String recipient, DeliveryOutcome outcome, String type, String category) {
+        if (!enabled) {
+            return;
+        }
+        if (outcome != DeliveryOutcome.FAILED && outcome != DeliveryOutcome.SHED && sampleRate < 1.0
+                && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        DeliveryAuditRecord record = new DeliveryAuditRecord(
+                System.currentTimeMillis(), notificationId, recipient, outcome, type, category);
+        if (!buffer.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    private void drain() {
+        StringBuilder line = new StringBuilder(192);
+        while (running) {
+            DeliveryAuditRecord record = buffer.poll();
+            if (record == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            write(record, line);
+        }
+        // Flush whatever was queued before shutdown
+        DeliveryAuditRecord record;
+        while ((record = buffer.poll()) != null) {
+            write(record, line);
+        }
+    }
+
+    private void write(DeliveryAuditRecord record, StringBuilder line) {
+        try {
+            line.setLength(0);
+            record.appendJson(line);
+            auditLogger.info(line.toString());
+        } catch (Exception e) {
+            logger.warn("Failed to write delivery audit record", e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.cs203.smucode.audit;
+
+import com.cs203.smucode.constants.DeliveryOutcome;
+
+import java.util.UUID;
+
+/**
+ * One delivery attempt, written as a single JSON line by {@link DeliveryAuditLog}.
+ */
+public record DeliveryAuditRecord(
+    long timestamp,
+    UUID notificationId,
+    String recipient,
+    DeliveryOutcome outcome,
+    String type,
+    String category
+) {
+
+    /**
+     * Appends the record as compact JSON, eg.
+     * {@code {"ts":1718000000000,"id":"...","to":"alice","outcome":"delivered","type":"round_started","category":"general"}}
+     */
+    void appendJson(StringBuilder out) {
+        out.append("{\"ts\":").append(timestamp)
+                .append(",\"id\":\"").append(notificationId).append('"')
+                .append(",\"to\":\"");
+        appendEscaped(out, recipient);
+        out.append("\",\"outcome\":\"").append(outcome.name().toLowerCase()).append('"')
+                .append(",\"type\":\"").append(type).append('"')
+                .append(",\"category\":\"").append(category).append("\"}");
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+    }
+}
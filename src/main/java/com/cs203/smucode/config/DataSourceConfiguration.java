@@ -0,0 +1,78 @@
+package com.cs203.smucode.config;
+
+import com.cs203.smucode.datasource.ReplicaLagMonitor;
+import com.cs203.smucode.datasource.ReplicaProperties;
+import com.cs203.smucode.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Primary plus read replicas behind a {@link ReplicaRoutingDataSource} when
+ * {@code notifications.datasource.replicas.enabled} is set, the primary alone otherwise.
+ *
+ * <p>The switch is made when the beans are created rather than with a
+ * {@code @ConditionalOnProperty}, which the AOT build of the {@code fast-start} jar would
+ * evaluate once, against the build's properties. The primary is configured like Spring
+ * Boot's own pool, from {@code spring.datasource.*} and {@code spring.datasource.hikari.*}.
+ * </p>
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class DataSourceConfiguration {
+
+    @Bean(destroyMethod = "close")
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ReplicaLagMonitor replicaLagMonitor(HikariDataSource primaryDataSource, ReplicaProperties properties,
+                                               MeterRegistry registry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReplicaProperties.Node> nodes = properties.enabled() ? properties.nodes() : List.of();
+        for (ReplicaProperties.Node node : nodes) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName(node.name());
+            replica.setJdbcUrl(node.url());
+            replica.setUsername(node.username());
+            replica.setPassword(node.password());
+            replica.setReadOnly(true);
+            replicas.put(node.name(), replica);
+        }
+        return new ReplicaLagMonitor(primaryDataSource, replicas, properties.maxLagMillis(),
+                properties.heartbeatMillis(), registry);
+    }
+
+    @Bean(destroyMethod = "") // closed as primaryDataSource
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaLagMonitor replicaLagMonitor,
+                                 ReplicaProperties properties) {
+        if (!properties.enabled()) {
+            return primaryDataSource;
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(replicaLagMonitor);
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicaRoutingDataSource.PRIMARY, primaryDataSource);
+        targets.putAll(replicaLagMonitor.replicaDataSources());
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,108 @@
+package com.cs203.smucode.config;
+
+import com.cs203.smucode.security.CachingJwtDecoder;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.util.StringUtils;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT verification for the resource server.
+ *
+ * <p>Replaces Spring Boot's default decoder with one whose JWK set is fetched as soon
+ * as the application is ready and then refreshed in the background before it
+ * expires, so a key rotation never makes a request wait on the auth service. Verified
+ * tokens are cached by {@link CachingJwtDecoder}.
+ * </p>
+ *
+ * <p>Always registered, so the AOT build of the {@code fast-start} jar keeps it whatever
+ * properties the build saw. {@code spring.security.oauth2.resourceserver.jwt.jwk-set-uri}
+ * is read when the beans are created and startup fails if it is missing. Tests replace
+ * the decoder with a {@code @Primary} one.
+ * </p>
+ */
+@Configuration
+public class JwtConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtConfiguration.class);
+
+    private final ObjectProvider<JWKSource<SecurityContext>> jwkSource;
+
+    public JwtConfiguration(ObjectProvider<JWKSource<SecurityContext>> jwkSource) {
+        this.jwkSource = jwkSource;
+    }
+
+    @Bean
+    public JWKSource<SecurityContext> jwkSource(
+            @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+            @Value("${notifications.jwt.jwks-ttl-minutes:60}") long ttlMinutes,
+            @Value("${notifications.jwt.jwks-refresh-ahead-seconds:60}") long refreshAheadSeconds)
+            throws MalformedURLException {
+        return JWKSourceBuilder.<SecurityContext>create(URI.create(jwkSetUri).toURL())
+                .cache(TimeUnit.MINUTES.toMillis(ttlMinutes), JWKSourceBuilder.DEFAULT_CACHE_REFRESH_TIMEOUT)
+                // Refresh on a background thread shortly before the cached set expires
+                .refreshAheadCache(TimeUnit.SECONDS.toMillis(refreshAheadSeconds), true)
+                .retrying(true)
+                .outageTolerant(true)
+                .build();
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(
+            JWKSource<SecurityContext> jwkSource,
+            @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri:}") String issuerUri,
+            @Value("${notifications.jwt.cache-size:100000}") long cacheSize,
+            @Value("${notifications.jwt.cache-max-ttl-minutes:15}") long cacheMaxTtlMinutes,
+            MeterRegistry registry) {
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        // Claims are validated by Spring below, same as the default decoder
+        processor.setJWTClaimsSetVerifier((claims, context) -> { });
+
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(StringUtils.hasText(issuerUri)
+                ? JwtValidators.createDefaultWithIssuer(issuerUri)
+                : JwtValidators.createDefault());
+        return new CachingJwtDecoder(decoder, cacheSize, Duration.ofMinutes(cacheMaxTtlMinutes), registry);
+    }
+
+    /**
+     * Loads the JWK set before the first client connects, a failure here is retried on first use
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prefetchJwkSet() {
+        JWKSource<SecurityContext> source = jwkSource.getIfAvailable();
+        if (source == null) {
+            return;
+        }
+        try {
+            int keys = source.get(new JWKSelector(new JWKMatcher.Builder().build()), null).size();
+            logger.info("Prefetched {} signing keys", keys);
+        } catch (KeySourceException e) {
+            logger.warn("Could not prefetch the JWK set, it will be fetched on first use", e);
+        }
+    }
+}
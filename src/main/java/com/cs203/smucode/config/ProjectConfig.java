@@ -1,13 +1,32 @@
 package com.cs203.smucode.config;
 
+import com.cs203.smucode.templates.TemplateProperties;
+import com.cs203.smucode.utils.RotatingBloomFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
+@EnableConfigurationProperties(TemplateProperties.class)
 @ComponentScan(basePackages = {
         "com.cs203.smucode.controllers",
         "com.cs203.smucode.repositories",
         "com.cs203.smucode.services"
 })
 public class ProjectConfig {
+
+    /**
+     * Idempotency keys seen by this instance in the last one to two windows
+     */
+    @Bean
+    public RotatingBloomFilter idempotencyKeyFilter(
+            @Value("${notifications.idempotency.expected-keys:100000}") int expectedKeys,
+            @Value("${notifications.idempotency.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${notifications.idempotency.window-minutes:10}") long windowMinutes) {
+        return new RotatingBloomFilter(expectedKeys, falsePositiveRate, TimeUnit.MINUTES.toNanos(windowMinutes));
+    }
 }
@@ -3,6 +3,7 @@ package com.cs203.smucode.config;
 import java.util.List;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -30,7 +31,12 @@ public class SecurityConfiguration {
         http.authorizeHttpRequests(
             // only the system is allowed to make notifications, rest can view and mark as read
             auth -> auth
-                    .requestMatchers("/api/notifications/stream")
+                    // health checks and Prometheus scrapes come from infrastructure without a JWT, on the
+                    // management port only, which is not published (management.server.port)
+                    .requestMatchers("/actuator/health/**", "/actuator/prometheus")
+                    .permitAll()
+                    // matched against the path inside the /api context path
+                    .requestMatchers(HttpMethod.POST, "/notifications/stream")
                     .hasAuthority("SCOPE_ROLE_SYSTEM")
                     .anyRequest()
                     .authenticated()
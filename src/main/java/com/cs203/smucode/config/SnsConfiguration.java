@@ -0,0 +1,50 @@
+package com.cs203.smucode.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.util.StringUtils;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sns.SnsAsyncClient;
+import software.amazon.awssdk.services.sns.SnsAsyncClientBuilder;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * SNS client used by {@link com.cs203.smucode.handlers.OfflineDelivery}.
+ *
+ * <p>The Netty client keeps a pool of up to {@code notifications.offline.max-connections}
+ * connections to SNS, which should be at least {@code notifications.offline.max-in-flight}.
+ * Setting {@code notifications.offline.endpoint} points the client at a local stand-in
+ * such as LocalStack instead of AWS.
+ * </p>
+ *
+ * <p>The bean is always defined but lazy, and only created when offline delivery is
+ * enabled and asks for it. A {@code @ConditionalOnProperty} would be evaluated once by
+ * the AOT build of the {@code fast-start} jar, freezing whatever the build saw.
+ * </p>
+ */
+@Configuration
+public class SnsConfiguration {
+
+    @Bean(destroyMethod = "close")
+    @Lazy
+    public SnsAsyncClient snsAsyncClient(
+            @Value("${notifications.offline.region:ap-southeast-1}") String region,
+            @Value("${notifications.offline.endpoint:}") String endpoint,
+            @Value("${notifications.offline.max-connections:32}") int maxConnections,
+            @Value("${notifications.offline.connection-acquire-timeout-millis:2000}") long acquireTimeoutMillis) {
+        SnsAsyncClientBuilder builder = SnsAsyncClient.builder()
+                .region(Region.of(region))
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(maxConnections)
+                        .connectionAcquisitionTimeout(Duration.ofMillis(acquireTimeoutMillis)));
+        if (StringUtils.hasText(endpoint)) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.cs203.smucode.config;
+
+import com.cs203.smucode.admission.IngestAdmissionInterceptor;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * MVC wiring: the ingest admission interceptor, and the pool that writes streamed responses.
+ *
+ * <p>Inboxes are {@code StreamingResponseBody}s, written after the request thread is
+ * released. Left to Boot they would share the 8-thread {@code applicationTaskExecutor},
+ * so a handful of large or slow-reading inboxes would hold up every other one. They get
+ * their own pool of {@code notifications.inbox.response-threads} (32), queueing up to
+ * {@code notifications.inbox.response-queue} (256) more; past that a request fails at once
+ * instead of waiting behind the queue. The pool is not a bean, so Boot's executor stays
+ * in place for everything else.
+ * </p>
+ */
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    private final IngestAdmissionInterceptor ingestAdmissionInterceptor;
+    private final ThreadPoolTaskExecutor inboxWriters;
+
+    @Autowired
+    public WebConfiguration(IngestAdmissionInterceptor ingestAdmissionInterceptor,
+                            @Value("${notifications.inbox.response-threads:32}") int responseThreads,
+                            @Value("${notifications.inbox.response-queue:256}") int responseQueue) {
+        this.ingestAdmissionInterceptor = ingestAdmissionInterceptor;
+        this.inboxWriters = new ThreadPoolTaskExecutor();
+        inboxWriters.setCorePoolSize(responseThreads);
+        inboxWriters.setMaxPoolSize(responseThreads);
+        inboxWriters.setQueueCapacity(responseQueue);
+        inboxWriters.setThreadNamePrefix("inbox-writer-");
+        inboxWriters.setWaitForTasksToCompleteOnShutdown(true);
+        inboxWriters.setAwaitTerminationSeconds(10);
+        inboxWriters.initialize();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(ingestAdmissionInterceptor)
+                .addPathPatterns("/notifications/stream");
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(inboxWriters);
+    }
+
+    @PreDestroy
+    public void stop() {
+        inboxWriters.shutdown();
+    }
+}
@@ -0,0 +1,6 @@
+package com.cs203.smucode.constants;
+
+public enum DeliveryLane {
+    PRIORITY,
+    STANDARD
+}
@@ -0,0 +1,12 @@
+package com.cs203.smucode.constants;
+
+public enum DeliveryOutcome {
+    DELIVERED,
+    SKIPPED_NO_EMITTER,
+    // Subscriber is connected but filtered out the event's category or type
+    FILTERED,
+    QUEUED_OFFLINE,
+    FAILED,
+    // Fan-out queue was full, the notification is still in the recipient's inbox
+    SHED
+}
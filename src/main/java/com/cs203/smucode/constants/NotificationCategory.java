@@ -1,5 +1,6 @@
 package com.cs203.smucode.constants;
 
+// Ordinals are sent to compact subscribers, only ever append
 public enum NotificationCategory {
     ALERT,
     GENERAL
@@ -1,5 +1,6 @@
 package com.cs203.smucode.constants;
 
+// Ordinals are sent to compact subscribers, only ever append
 public enum NotificationType {
     SIGNUP_CLOSED,
     REGISTRATION_ACCEPTED,
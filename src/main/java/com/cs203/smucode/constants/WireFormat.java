@@ -0,0 +1,21 @@
+package com.cs203.smucode.constants;
+
+/**
+ * Encoding of the events on a subscriber's stream, picked with {@code ?format=} at subscribe time
+ */
+public enum WireFormat {
+    // OutgoingNotificationDTO as is: field names, ISO timestamps, lower-case type and category
+    JSON,
+    // Short keys, type and category ordinals, epoch millisecond timestamps
+    COMPACT,
+    // The compact fields as a base64 CBOR array, with binary UUIDs
+    CBOR;
+
+    /**
+     * @param value format name in any case, null for the default
+     * @throws IllegalArgumentException if there is no such format
+     */
+    public static WireFormat fromParameter(String value) {
+        return value == null ? JSON : valueOf(value.toUpperCase());
+    }
+}
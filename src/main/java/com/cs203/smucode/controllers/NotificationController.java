@@ -1,45 +1,110 @@
 package com.cs203.smucode.controllers;
 
+import com.cs203.smucode.admission.SubscribeAdmission;
+import com.cs203.smucode.datasource.ReplicaRouting;
+import com.cs203.smucode.constants.WireFormat;
+import com.cs203.smucode.dto.EncodedNotification;
+import com.cs203.smucode.dto.InboxVersion;
 import com.cs203.smucode.dto.IncomingNotificationDTO;
+import com.cs203.smucode.dto.NotificationChangesDTO;
+import com.cs203.smucode.dto.NotificationFilterDTO;
 import com.cs203.smucode.dto.OutgoingNotificationDTO;
 import com.cs203.smucode.exception.ApiRequestException;
+import com.cs203.smucode.exception.DuplicateNotificationException;
 import com.cs203.smucode.exception.InvalidTokenException;
+import com.cs203.smucode.handlers.DelayedDelivery;
 import com.cs203.smucode.handlers.EventHandler;
+import com.cs203.smucode.handlers.SubscriptionFilter;
 import com.cs203.smucode.mappers.NotificationMapper;
+import com.cs203.smucode.metrics.ErrorTelemetry;
+import com.cs203.smucode.metrics.NotificationMetrics;
 import com.cs203.smucode.models.Notification;
+import com.cs203.smucode.repositories.NotificationSpecifications;
+import com.cs203.smucode.services.IInboxVersionService;
 import com.cs203.smucode.services.INotificationService;
+import com.cs203.smucode.templates.NotificationTemplates;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
 
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/notifications")
 public class NotificationController {
 
     private static final Logger logger = LoggerFactory.getLogger(NotificationController.class);
+    private static final LocalDateTime SYNC_EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
 
     private final NotificationMapper notificationMapper;
     private final INotificationService notificationService;
     private final EventHandler eventHandler;
+    private final DelayedDelivery delayedDelivery;
+    private final NotificationTemplates notificationTemplates;
+    private final IInboxVersionService inboxVersionService;
+    private final ObjectMapper objectMapper;
+    private final NotificationMetrics notificationMetrics;
+    private final ErrorTelemetry errorTelemetry;
+    private final SubscribeAdmission subscribeAdmission;
+    private final boolean inboxGzipEnabled;
+    private final long syncSettleMillis;
+    private final int syncReplayLimit;
+    private final long replicaMaxLagMillis;
 
     @Autowired
     public NotificationController(INotificationService notificationService,
-                                  NotificationMapper notificationMapper, EventHandler eventHandler) {
+                                  NotificationMapper notificationMapper, EventHandler eventHandler,
+                                  DelayedDelivery delayedDelivery, NotificationTemplates notificationTemplates,
+                                  IInboxVersionService inboxVersionService, ObjectMapper objectMapper,
+                                  NotificationMetrics notificationMetrics, ErrorTelemetry errorTelemetry,
+                                  SubscribeAdmission subscribeAdmission,
+                                  @Value("${notifications.inbox.gzip-enabled:true}") boolean inboxGzipEnabled,
+                                  @Value("${notifications.sync.settle-millis:1000}") long syncSettleMillis,
+                                  @Value("${notifications.sync.replay-limit:500}") int syncReplayLimit,
+                                  @Value("${notifications.datasource.replicas.max-lag-millis:5000}") long replicaMaxLagMillis) {
         this.notificationService = notificationService;
         this.notificationMapper = notificationMapper;
         this.eventHandler = eventHandler;
+        this.delayedDelivery = delayedDelivery;
+        this.notificationTemplates = notificationTemplates;
+        this.inboxVersionService = inboxVersionService;
+        this.objectMapper = objectMapper;
+        this.notificationMetrics = notificationMetrics;
+        this.errorTelemetry = errorTelemetry;
+        this.subscribeAdmission = subscribeAdmission;
+        this.inboxGzipEnabled = inboxGzipEnabled;
+        this.syncSettleMillis = syncSettleMillis;
+        this.syncReplayLimit = syncReplayLimit;
+        this.replicaMaxLagMillis = replicaMaxLagMillis;
     }
 
     /**
@@ -50,6 +115,21 @@ public class NotificationController {
      * It persists the notification and sends it to relevant subscribers in real-time.
      * </p>
      *
+     * <p>When the payload carries an idempotency key that the same publisher (JWT
+     * subject) already used, the notification created the first time is returned and
+     * nobody is notified again.
+     * </p>
+     *
+     * <p>A notification with a {@code deliverAt} in the future is saved straight away but
+     * only shows up in inboxes and streams from that time, see {@link DelayedDelivery}.
+     * It is answered with 202 Accepted.
+     * </p>
+     *
+     * <p>Instead of a message, the payload can name a template from
+     * {@code notifications.templates.registry} and its parameters, see {@link NotificationTemplates}.
+     * </p>
+     *
+     * @param jwt the jwt token of the publishing service
      * @param notificationDTO The notification DTO received from
      *                        the event-sending service, containing details such
      *                        as message type, recipient information, and content.
@@ -61,23 +141,55 @@ public class NotificationController {
      */
     @PostMapping("/stream")
     public ResponseEntity<OutgoingNotificationDTO> createNotification(
+        @AuthenticationPrincipal Jwt jwt,
         @RequestBody @Valid IncomingNotificationDTO notificationDTO
     ) {
         try {
+            long start = System.nanoTime();
             Notification notification = notificationMapper.incomingNotificationDTOtoNotification(notificationDTO);
+            // Idempotency keys are scoped to the publisher
+            notification.setPublisher(jwt == null ? null : extractUsername(jwt));
+            if (notificationDTO.templateId() != null) {
+                notificationTemplates.bind(notification, notificationDTO.templateId(), notificationDTO.templateParams());
+            }
+            String type = notificationMapper.notificationTypeToString(notification.getType());
+            String category = notificationMapper.notificationCategoryToString(notification.getCategory());
+            notificationMetrics.recordIngestStage("map_incoming", type, category, start);
+
+            start = System.nanoTime();
             notificationService.createNotification(notification);
+            notificationMetrics.recordIngestStage("save", type, category, start);
 
-            logger.info("Notification created: {}", notification);
+            logger.debug("Notification created: {} ({}, {}) for {} recipients",
+                    notification.getId(), type, category, notificationDTO.recipients().size());
 
             // Handle incoming event, eg. notify subscribed users
-            OutgoingNotificationDTO outgoingNotificationDTO = notificationMapper.notificationToOutgoingNotificationDTO(notification);
-            eventHandler.handleEvent(notificationDTO.recipients(), outgoingNotificationDTO);
+            start = System.nanoTime();
+            OutgoingNotificationDTO outgoingNotificationDTO = notificationMapper.notificationToLiveEventDTO(notification);
+            notificationMetrics.recordIngestStage("map_outgoing", type, category, start);
+
+            if (notification.getPending()) {
+                start = System.nanoTime();
+                delayedDelivery.schedule(notification.getId(), notification.getDeliverAt());
+                notificationMetrics.recordIngestStage("schedule", type, category, start);
+                return ResponseEntity.accepted().body(outgoingNotificationDTO);
+            }
+
+            start = System.nanoTime();
+            eventHandler.handleEvent(notificationDTO.recipients(), outgoingNotificationDTO, notification.getUpdatedAt());
+            notificationMetrics.recordIngestStage("fanout", type, category, start);
             return ResponseEntity.ok(outgoingNotificationDTO);
 
+        } catch (DuplicateNotificationException e) {
+            logger.debug("Duplicate notification for idempotency key {}, returning {}",
+                    notificationDTO.idempotencyKey(), e.getExisting().getId());
+            return ResponseEntity.ok(notificationMapper.notificationToOutgoingNotificationDTO(e.getExisting()));
+        } catch (ApiRequestException e) {
+            throw e;
         } catch (IllegalArgumentException e) {
             throw new ApiRequestException("Invalid notification type");
         } catch (Exception e) {
-            logger.error("Exception during notification creation", e);
+            errorTelemetry.record("createNotification", e);
             throw new ApiRequestException("Something went wrong creating a notification");
         }
     }
@@ -85,20 +197,65 @@ public class NotificationController {
     /**
      * Endpoint to subscribe user to notification service
      *
+     * <p>The first frame of every stream is a jittered {@code retry:} hint. When
+     * connections arrive faster than admission allows, the client instead gets a
+     * stream holding only a {@code retry:} for its queued slot, see {@link SubscribeAdmission}.
+     * </p>
+     *
+     * <p>Every event carries its notification's {@code updatedAt} as its SSE {@code id}.
+     * A reconnecting client sends back the last one it saw, or the watermark a draining
+     * replica handed it, as {@code Last-Event-ID}; everything that changed after it, less
+     * the settle window, is replayed before live events. At most
+     * {@code notifications.sync.replay-limit} events are replayed; if there were more,
+     * a {@code resync} event carrying the last replayed id follows, and the client
+     * fetches the rest from {@code /changes}.
+     * </p>
+     *
+     * <p>Events are JSON unless {@code format} asks for {@code compact} or {@code cbor},
+     * see {@link EncodedNotification}.
+     * </p>
+     *
+     * <p>{@code category} and {@code type} narrow the stream, and the replay, to events
+     * of those categories and types; see {@link SubscriptionFilter}. The inbox is not
+     * filtered.
+     * </p>
+     *
      * @param jwt the jwt token containing the subject
+     * @param lastEventId watermark from a previous stream, if the client is reconnecting
+     * @param format wire format of the events, {@code json} by default
+     * @param categories categories to stream, all by default
+     * @param types types to stream, all by default
      * @return SseEmitter which keeps the connection open and streams incoming notifications
      */
     @GetMapping(path ="/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter subscribe(@AuthenticationPrincipal Jwt jwt) {
+    public SseEmitter subscribe(@AuthenticationPrincipal Jwt jwt,
+                                @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                @RequestParam(value = "format", required = false) String format,
+                                @RequestParam(value = "category", required = false) List<String> categories,
+                                @RequestParam(value = "type", required = false) List<String> types) {
         try {
             validateJwt(jwt);
+            WireFormat wireFormat = parseFormat(format);
+            SubscriptionFilter filter = parseFilter(categories, types);
+            long deferMillis = subscribeAdmission.admit();
+            if (deferMillis > 0) {
+                logger.debug("Deferring subscription by {} ms", deferMillis);
+                return subscribeAdmission.deferredStream(deferMillis);
+            }
             logger.info("Subscribing");
-            return notificationService.subscribe(this.extractUsername(jwt));
+            String username = this.extractUsername(jwt);
+            SseEmitter emitter = notificationService.subscribe(username, wireFormat, filter);
+            emitter.send(SseEmitter.event().reconnectTime(subscribeAdmission.retryHintMillis()));
+            if (lastEventId != null) {
+                replayChanges(emitter, username, lastEventId, wireFormat, filter);
+            }
+            return emitter;
         } catch (InvalidTokenException e) {
             throw new InvalidTokenException("Invalid token");
         } catch (ApiRequestException e) {
             throw e;
         } catch (Exception e) {
+            errorTelemetry.record("subscribe", e);
             throw new ApiRequestException("Something went wrong subscribing to a notification");
         }
     }
@@ -106,25 +263,134 @@ public class NotificationController {
     /**
      * Endpoint to get notifications for user
      *
+     * <p>The response carries the user's inbox version as its ETag, see
+     * {@link InboxVersion}. When the client sends it back in
+     * {@code If-None-Match} and nothing has changed, a 304 is returned without
+     * reading the inbox itself, and without touching the database at all while the
+     * version is cached. The content encoding,
+     * language and filters are folded into the tag, since each gives different
+     * bytes for the same inbox version.
+     * </p>
+     *
+     * <p>Otherwise notifications are streamed from the database straight into
+     * the response as a JSON array, gzip-compressed when the client accepts it,
+     * so memory per request does not grow with the size of the inbox.
+     * </p>
+     *
+     * <p>Any of {@code tournamentId}, {@code type}, {@code category}, {@code read},
+     * {@code from}, {@code to} and {@code q} narrow the result, which is then ordered
+     * newest first. The user's rows are found through the recipient index, or through
+     * the tournament or text index when one of those filters is given; the other
+     * filters are checked on those rows, see {@link NotificationSpecifications}.
+     * </p>
+     *
      * @param jwt the jwt token containing the subject
-     * @return list of all notifications (read + unread) for the user
+     * @param filter optional filters, all must match
+     * @param webRequest the current request, used for the conditional GET check
+     * @return list of all notifications (read + unread) for the user that match the filters,
+     *         or 304 Not Modified if the client's copy is current
      */
     @GetMapping("/")
-    public ResponseEntity<List<OutgoingNotificationDTO>> getNotificationsByUsername(@AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<StreamingResponseBody> getNotificationsByUsername(@AuthenticationPrincipal Jwt jwt,
+                                                                            @Valid NotificationFilterDTO filter,
+                                                                            WebRequest webRequest) {
         try {
             validateJwt(jwt);
-            List<Notification> notifications = notificationService.getNotificationsByUsername(
-                    this.extractUsername(jwt)
-            );
-            List<OutgoingNotificationDTO> notificationDTOs =
-                    notificationMapper.notificationsToOutgoingNotificationDTOs(notifications);
-            return ResponseEntity.ok(notificationDTOs);
+            String username = this.extractUsername(jwt);
+            Specification<Notification> specification = filter.isEmpty() ? null : toSpecification(username, filter);
+
+            boolean gzip = inboxGzipEnabled && acceptsGzip(webRequest);
+            // Read the version before the query, so a concurrent write can only make the ETag stale, never too new
+            InboxVersion version = inboxVersionService.getVersion(username);
+            String eTag = version.eTag(representation(gzip, filter, specification));
+            if (webRequest.checkNotModified(eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(eTag)
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .build();
+            }
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .eTag(eTag)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT_LANGUAGE);
+            if (gzip) {
+                response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            // A write this recent, through any instance, may not have replicated yet, so read it back from the primary
+            boolean primaryRequired = version.changedWithin(replicaMaxLagMillis);
+            // Templated messages are rendered in the request's language
+            LocaleContext localeContext = LocaleContextHolder.getLocaleContext();
+            return response.body(outputStream -> {
+                ReplicaRouting.setPrimaryRequired(primaryRequired);
+                LocaleContextHolder.setLocaleContext(localeContext);
+                try {
+                    writeNotifications(consumer -> {
+                        if (specification == null) {
+                            notificationService.streamNotificationsByUsername(username, consumer);
+                        } else {
+                            notificationService.streamNotifications(specification, consumer);
+                        }
+                    }, outputStream, gzip);
+                } finally {
+                    ReplicaRouting.setPrimaryRequired(false);
+                    LocaleContextHolder.resetLocaleContext();
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            throw new ApiRequestException("Invalid notification filter: " + e.getMessage());
         } catch (Exception e) {
-            logger.error("Exception during getNotificationsByUsername", e);
+            errorTelemetry.record("getNotificationsByUsername", e);
             throw new ApiRequestException("Something went wrong getting the notifications");
         }
     }
 
+    /**
+     * Endpoint to get only the notifications that changed since the client's last sync
+     *
+     * <p>Returns notifications created, or marked read/unread, after {@code since},
+     * together with the watermark to send next time. The watermark is held back by a
+     * short settle window so that writes still committing are picked up by the next
+     * sync; clients should therefore upsert changes by id.
+     * </p>
+     *
+     * @param jwt the jwt token containing the subject
+     * @param since watermark returned by the previous sync, omit for a full sync
+     * @return changed notifications and the new watermark
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<NotificationChangesDTO> getChanges(
+        @AuthenticationPrincipal Jwt jwt,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since
+    ) {
+        try {
+            validateJwt(jwt);
+            LocalDateTime settled = LocalDateTime.now().minusNanos(syncSettleMillis * 1_000_000);
+            LocalDateTime from = since != null ? since : SYNC_EPOCH;
+
+            List<Notification> changes = notificationService.getChangesSince(this.extractUsername(jwt), from);
+
+            LocalDateTime watermark = from;
+            for (Notification notification : changes) {
+                if (notification.getUpdatedAt().isAfter(watermark)) {
+                    watermark = notification.getUpdatedAt();
+                }
+            }
+            if (watermark.isAfter(settled)) {
+                watermark = settled.isAfter(from) ? settled : from;
+            }
+
+            return ResponseEntity.ok(new NotificationChangesDTO(
+                    notificationMapper.notificationsToOutgoingNotificationDTOs(changes),
+                    watermark
+            ));
+        } catch (Exception e) {
+            errorTelemetry.record("getChanges", e);
+            throw new ApiRequestException("Something went wrong getting the notification changes");
+        }
+    }
+
     /**
      * Endpoint to update notification as "read"
      *
@@ -141,7 +407,7 @@ public class NotificationController {
         } catch (EntityNotFoundException e) {
             throw new ApiRequestException("This notification does not exist");
         } catch (Exception e) {
-            logger.error("Exception during markAsRead", e);
+            errorTelemetry.record("markAsRead", e);
             throw new ApiRequestException("Something went wrong when updating the notification");
         }
     }
@@ -162,12 +428,129 @@ public class NotificationController {
         } catch (EntityNotFoundException e) {
             throw new ApiRequestException("This notification does not exist");
         } catch (Exception e) {
-            logger.error("Exception during markAsUnRead", e);
+            errorTelemetry.record("markAsUnRead", e);
             throw new ApiRequestException("Something went wrong when updating the notification");
         }
     }
 
 
+    /**
+     * Writes notifications as a JSON array, one row at a time.
+     *
+     * @param notifications streams the notifications to write into the consumer it is given
+     * @param outputStream response body
+     * @param gzip whether to gzip-compress the body
+     */
+    private void writeNotifications(Consumer<Consumer<Notification>> notifications, OutputStream outputStream,
+                                    boolean gzip) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(outputStream) : outputStream;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(target)) {
+            // The servlet container owns the response stream, we only finish what we wrapped around it
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            notifications.accept(notification -> {
+                try {
+                    generator.writeObject(notificationMapper.notificationToOutgoingNotificationDTO(notification));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (target instanceof GZIPOutputStream gzipOutputStream) {
+            gzipOutputStream.finish();
+        }
+    }
+
+    /**
+     * Turns the query string filters into a specification, rejecting unknown types and categories
+     */
+    private Specification<Notification> toSpecification(String username, NotificationFilterDTO filter) {
+        if (filter.from() != null && filter.to() != null && !filter.from().isBefore(filter.to())) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        return Specification.where(NotificationSpecifications.addressedTo(username))
+                .and(NotificationSpecifications.released())
+                .and(NotificationSpecifications.inTournament(filter.tournamentId()))
+                .and(NotificationSpecifications.ofType(
+                        filter.type() == null ? null : notificationMapper.stringToNotificationType(filter.type())))
+                .and(NotificationSpecifications.inCategory(
+                        filter.category() == null ? null : notificationMapper.stringToNotificationCategory(filter.category())))
+                .and(NotificationSpecifications.isRead(filter.read()))
+                .and(NotificationSpecifications.createdFrom(filter.from()))
+                .and(NotificationSpecifications.createdBefore(filter.to()))
+                .and(NotificationSpecifications.matchesText(filter.q()));
+    }
+
+    /**
+     * ETag variant naming the bytes an inbox request gets: encoding, language and filters
+     */
+    private static String representation(boolean gzip, NotificationFilterDTO filter,
+                                         Specification<Notification> specification) {
+        String variant = (gzip ? "gzip" : "identity") + "." + LocaleContextHolder.getLocale().toLanguageTag();
+        return specification == null ? variant : variant + "." + filter.fingerprint();
+    }
+
+    private boolean acceptsGzip(WebRequest webRequest) {
+        String acceptEncoding = webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private static WireFormat parseFormat(String format) {
+        try {
+            return WireFormat.fromParameter(format);
+        } catch (IllegalArgumentException e) {
+            throw new ApiRequestException("Unknown format " + format);
+        }
+    }
+
+    private SubscriptionFilter parseFilter(List<String> categories, List<String> types) {
+        try {
+            return SubscriptionFilter.of(
+                    categories == null ? null : categories.stream().map(notificationMapper::stringToNotificationCategory).toList(),
+                    types == null ? null : types.stream().map(notificationMapper::stringToNotificationType).toList());
+        } catch (IllegalArgumentException e) {
+            throw new ApiRequestException("Invalid notification category or type");
+        }
+    }
+
+    /**
+     * Sends what changed after the client's last event id, duplicates of live events are possible.
+     *
+     * <p>Starts a settle window before the id, since a write committing late can carry
+     * an earlier {@code updatedAt} than the last event the client saw, and stops after
+     * {@code syncReplayLimit} changes with a {@code resync} event.
+     * </p>
+     */
+    private void replayChanges(SseEmitter emitter, String username, String lastEventId, WireFormat format,
+                               SubscriptionFilter filter) throws IOException {
+        LocalDateTime since;
+        try {
+            since = LocalDateTime.parse(lastEventId).minusNanos(syncSettleMillis * 1_000_000);
+        } catch (DateTimeParseException e) {
+            logger.debug("Ignoring unrecognised Last-Event-ID {}", lastEventId);
+            return;
+        }
+        List<Notification> changes = notificationService.getChangesSince(username, since, syncReplayLimit + 1);
+        int replayed = Math.min(changes.size(), syncReplayLimit);
+        for (Notification notification : changes.subList(0, replayed)) {
+            if (!filter.matches(notification.getCategory(), notification.getType())) {
+                continue;
+            }
+            EncodedNotification encoded = new EncodedNotification(
+                    notificationMapper.notificationToOutgoingNotificationDTO(notification), notification.getUpdatedAt());
+            emitter.send(SseEmitter.event().id(encoded.eventId()).data(encoded.get(format)));
+        }
+        if (changes.size() > syncReplayLimit) {
+            String resumeFrom = replayed == 0
+                    ? lastEventId : EncodedNotification.eventId(changes.get(replayed - 1).getUpdatedAt());
+            logger.debug("Replay for {} capped at {} changes, resync from {}", username, syncReplayLimit, resumeFrom);
+            emitter.send(SseEmitter.event().name("resync").id(resumeFrom).data(resumeFrom));
+        }
+    }
+
     private void validateJwt(@AuthenticationPrincipal Jwt jwt) {
         if (jwt == null) {
             throw new InvalidTokenException("Invalid token");
@@ -0,0 +1,156 @@
+package com.cs203.smucode.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures replication lag with a heartbeat row.
+ *
+ * <p>Every {@code heartbeatMillis} the primary's {@value #TABLE} row is set to the current
+ * time, and each replica's copy of it is read back. A replica's lag is how old its copy
+ * is; a replica whose lag exceeds {@code maxLagMillis}, or that cannot be read, is left
+ * out of {@link #healthyReplicas()} until it catches up.
+ * </p>
+ */
+public class ReplicaLagMonitor {
+
+    public static final String LAG = "notification.datasource.replica.lag";
+    static final String TABLE = "replica_heartbeat";
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate primary;
+    private final Map<String, DataSource> replicaDataSources;
+    private final Map<String, JdbcTemplate> replicas = new LinkedHashMap<>();
+    private final Map<String, Long> lagMillis = new ConcurrentHashMap<>();
+    private final long maxLagMillis;
+    private final long heartbeatMillis;
+
+    private volatile List<String> healthy = List.of();
+    private ScheduledExecutorService executor;
+
+    public ReplicaLagMonitor(DataSource primary, Map<String, DataSource> replicas, long maxLagMillis,
+                             long heartbeatMillis, MeterRegistry registry) {
+        this.primary = new JdbcTemplate(primary);
+        this.maxLagMillis = maxLagMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        this.replicaDataSources = Map.copyOf(replicas);
+        replicas.forEach((name, dataSource) -> {
+            this.replicas.put(name, new JdbcTemplate(dataSource));
+            this.lagMillis.put(name, Long.MAX_VALUE);
+            Gauge.builder(LAG, lagMillis, lags -> lags.getOrDefault(name, Long.MAX_VALUE))
+                    .description("Age of the replica's copy of the heartbeat, in milliseconds")
+                    .tag("replica", name)
+                    .register(registry);
+        });
+    }
+
+    public void start() {
+        if (replicas.isEmpty()) {
+            return; // nothing to measure, replicas are disabled
+        }
+        createTable();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            beat();
+            check();
+        }, 0, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        for (DataSource replica : replicaDataSources.values()) {
+            if (replica instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    logger.warn("Failed to close replica datasource", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replica datasources by name, as given to the constructor
+     */
+    public Map<String, DataSource> replicaDataSources() {
+        return replicaDataSources;
+    }
+
+    /**
+     * Replicas currently within the lag threshold
+     */
+    public List<String> healthyReplicas() {
+        return healthy;
+    }
+
+    /**
+     * Creates the heartbeat table on the primary if it is missing, once before the first beat
+     */
+    void createTable() {
+        try {
+            primary.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (id INT PRIMARY KEY, beat_at BIGINT NOT NULL)");
+        } catch (DataAccessException e) {
+            logger.warn("Could not create replication heartbeat table", e);
+        }
+    }
+
+    /**
+     * Writes the current time to the primary's heartbeat row
+     */
+    void beat() {
+        try {
+            long now = System.currentTimeMillis();
+            if (primary.update("UPDATE " + TABLE + " SET beat_at = ? WHERE id = 1", now) == 0) {
+                primary.update("INSERT INTO " + TABLE + " (id, beat_at) VALUES (1, ?)", now);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Could not write replication heartbeat", e);
+        }
+    }
+
+    /**
+     * Reads every replica's heartbeat and recomputes the healthy set
+     */
+    void check() {
+        long now = System.currentTimeMillis();
+        List<String> healthyNow = new ArrayList<>();
+        replicas.forEach((name, replica) -> {
+            long lag;
+            try {
+                Long beatAt = replica.queryForObject("SELECT beat_at FROM " + TABLE + " WHERE id = 1", Long.class);
+                lag = beatAt == null ? Long.MAX_VALUE : Math.max(0, now - beatAt);
+            } catch (DataAccessException e) {
+                lag = Long.MAX_VALUE;
+            }
+            lagMillis.put(name, lag);
+            if (lag <= maxLagMillis) {
+                healthyNow.add(name);
+            }
+        });
+        if (healthyNow.size() != healthy.size()) {
+            logger.info("Healthy read replicas: {} of {}", healthyNow.size(), replicas.size());
+        }
+        healthy = List.copyOf(healthyNow);
+    }
+}
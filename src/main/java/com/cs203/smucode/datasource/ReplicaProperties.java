@@ -0,0 +1,47 @@
+package com.cs203.smucode.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read replicas for inbox queries, under {@code notifications.datasource.replicas}
+ *
+ * @param enabled route read-only transactions to replicas
+ * @param nodes replica connection details
+ * @param maxLagMillis replicas further behind than this are skipped
+ * @param heartbeatMillis how often lag is measured
+ */
+@ConfigurationProperties(prefix = "notifications.datasource.replicas")
+public record ReplicaProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue List<Node> nodes,
+    @DefaultValue("5000") long maxLagMillis,
+    @DefaultValue("1000") long heartbeatMillis
+) {
+
+    /**
+     * Replica names are lookup keys next to the primary's, so one named like it would
+     * take its place and receive writes
+     */
+    public ReplicaProperties {
+        Set<String> names = new HashSet<>();
+        for (Node node : nodes) {
+            if (node.name() == null || node.name().isBlank()) {
+                throw new IllegalArgumentException("Every replica needs a name");
+            }
+            if (ReplicaRoutingDataSource.PRIMARY.equals(node.name())) {
+                throw new IllegalArgumentException("A replica cannot be named " + ReplicaRoutingDataSource.PRIMARY);
+            }
+            if (!names.add(node.name())) {
+                throw new IllegalArgumentException("Duplicate replica name " + node.name());
+            }
+        }
+    }
+
+    public record Node(String name, String url, String username, String password) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.cs203.smucode.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread hint that the current read must see recent writes, so
+ * {@link ReplicaRoutingDataSource} sends it to the primary even when it is read-only.
+ */
+public final class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReplicaRouting() {
+    }
+
+    /**
+     * Runs {@code work} with every read pinned to the primary
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        boolean previous = isPrimaryRequired();
+        setPrimaryRequired(true);
+        try {
+            return work.get();
+        } finally {
+            setPrimaryRequired(previous);
+        }
+    }
+
+    public static void setPrimaryRequired(boolean required) {
+        if (required) {
+            PRIMARY_REQUIRED.set(Boolean.TRUE);
+        } else {
+            PRIMARY_REQUIRED.remove();
+        }
+    }
+
+    public static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get() != null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.cs203.smucode.discovery;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Load balancer configuration for clients of this service, such as the gateway.
+ *
+ * <p>Deliberately not a {@code @Configuration}: Spring Cloud creates it in a child
+ * context per service. Register it with
+ * {@code @LoadBalancerClient(name = "notification-service", configuration = LeastLoadedLoadBalancerConfiguration.class)}.
+ * Clients should also fetch the registry more often than the 30 second default,
+ * eg. {@code eureka.client.registry-fetch-interval-seconds: 5}.
+ * </p>
+ */
+public class LeastLoadedLoadBalancerConfiguration {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> leastLoadedLoadBalancer(
+            Environment environment,
+            LoadBalancerClientFactory loadBalancerClientFactory,
+            @Value("${notifications.load.queue-weight:256}") long queueWeight) {
+        String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new LeastLoadedServiceInstanceLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(name, ServiceInstanceListSupplier.class), queueWeight);
+    }
+}
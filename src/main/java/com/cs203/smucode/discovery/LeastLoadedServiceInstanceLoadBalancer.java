@@ -0,0 +1,146 @@
+package com.cs203.smucode.discovery;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client-side load balancer that sends new streams to the least loaded replica.
+ *
+ * <p>Streams stay open for hours, so round robin leaves the oldest replicas holding
+ * most of them and new ones idle. For {@value #SUBSCRIBE_PATH} this picks the
+ * instance with the lowest load, read from the metadata written by
+ * {@link LoadMetadataPublisher}: open streams, plus {@code queueWeight} for every
+ * pending fan-out batch. Instances without metadata count as idle. Every other request
+ * is spread round robin.
+ * </p>
+ *
+ * <p>The metadata is seconds old by the time it gets here, so every stream this
+ * balancer sends to an instance is added to its load until the instance reports new
+ * figures. Without that, a reconnect storm would all go to the same replica.
+ * </p>
+ *
+ * <p>Enable it for the service with {@link LeastLoadedLoadBalancerConfiguration}.
+ * </p>
+ */
+public class LeastLoadedServiceInstanceLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    public static final String SUBSCRIBE_PATH = "/notifications/subscribe";
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplier;
+    private final long queueWeight;
+    private final AtomicInteger position = new AtomicInteger(ThreadLocalRandom.current().nextInt(1000));
+    private final Map<String, Assigned> assigned = new ConcurrentHashMap<>();
+
+    public LeastLoadedServiceInstanceLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplier,
+                                                  long queueWeight) {
+        this.serviceInstanceListSupplier = serviceInstanceListSupplier;
+        this.queueWeight = queueWeight;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplier
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> choose(instances, isSubscribe(request)));
+    }
+
+    Response<ServiceInstance> choose(List<ServiceInstance> instances, boolean subscribe) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        if (!subscribe) {
+            int next = position.getAndIncrement() & Integer.MAX_VALUE;
+            return new DefaultResponse(instances.get(next % instances.size()));
+        }
+
+        ServiceInstance chosen = null;
+        Assigned chosenAssigned = null;
+        long lowest = Long.MAX_VALUE;
+        int ties = 0;
+        for (ServiceInstance instance : instances) {
+            Assigned current = assignedTo(instance);
+            long load = current.reported + current.streams.get();
+            if (load < lowest) {
+                lowest = load;
+                chosen = instance;
+                chosenAssigned = current;
+                ties = 1;
+            } else if (load == lowest && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+                // Spread ties evenly rather than always picking the first
+                chosen = instance;
+                chosenAssigned = current;
+            }
+        }
+        chosenAssigned.streams.incrementAndGet();
+        if (assigned.size() > instances.size() * 2) {
+            forgetGone(instances);
+        }
+        return new DefaultResponse(chosen);
+    }
+
+    /**
+     * Streams sent to the instance since its last report, reset when its figures change
+     */
+    private Assigned assignedTo(ServiceInstance instance) {
+        Map<String, String> metadata = instance.getMetadata();
+        long reported = parse(metadata.get(LoadMetadataPublisher.EMITTERS))
+                + queueWeight * parse(metadata.get(LoadMetadataPublisher.FANOUT_QUEUE));
+        return assigned.compute(instance.getInstanceId(), (id, current) ->
+                current != null && current.reported == reported ? current : new Assigned(reported));
+    }
+
+    private void forgetGone(List<ServiceInstance> instances) {
+        Set<String> live = new HashSet<>();
+        instances.forEach(instance -> live.add(instance.getInstanceId()));
+        assigned.keySet().retainAll(live);
+    }
+
+    private static long parse(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static boolean isSubscribe(Request request) {
+        return request.getContext() instanceof RequestDataContext context
+                && context.getClientRequest() != null
+                && context.getClientRequest().getUrl() != null
+                && context.getClientRequest().getUrl().getPath() != null
+                && context.getClientRequest().getUrl().getPath().endsWith(SUBSCRIBE_PATH);
+    }
+
+    private static final class Assigned {
+
+        private final long reported;
+        private final AtomicLong streams = new AtomicLong();
+
+        private Assigned(long reported) {
+            this.reported = reported;
+        }
+    }
+}
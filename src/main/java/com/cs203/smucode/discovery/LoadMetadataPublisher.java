@@ -0,0 +1,102 @@
+package com.cs203.smucode.discovery;
+
+import com.cs203.smucode.handlers.FanoutScheduler;
+import com.cs203.smucode.services.INotificationService;
+import com.netflix.appinfo.ApplicationInfoManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes this replica's load as Eureka instance metadata.
+ *
+ * <p>Every {@code notifications.load.refresh-millis} the number of open streams and
+ * the fan-out batches still pending are written to {@value #EMITTERS} and
+ * {@value #FANOUT_QUEUE}, which {@link LeastLoadedServiceInstanceLoadBalancer} reads on
+ * the gateway side. Metadata is only re-registered when a value changed, and reaches
+ * the registry on the client's next instance info replication, so keep
+ * {@code eureka.client.instance-info-replication-interval-seconds} short.
+ * </p>
+ *
+ * <p>Does nothing when there is no Eureka client, eg. in tests.
+ * </p>
+ */
+@Component
+public class LoadMetadataPublisher {
+
+    public static final String EMITTERS = "load.emitters";
+    public static final String FANOUT_QUEUE = "load.fanout-queue";
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadMetadataPublisher.class);
+
+    private final long refreshMillis;
+    private final INotificationService notificationService;
+    private final FanoutScheduler fanoutScheduler;
+    private final ObjectProvider<ApplicationInfoManager> applicationInfoManager;
+
+    private Map<String, String> published = Map.of();
+    private ScheduledExecutorService executor;
+
+    @Autowired
+    public LoadMetadataPublisher(@Value("${notifications.load.refresh-millis:5000}") long refreshMillis,
+                                 INotificationService notificationService,
+                                 FanoutScheduler fanoutScheduler,
+                                 ObjectProvider<ApplicationInfoManager> applicationInfoManager) {
+        this.refreshMillis = refreshMillis;
+        this.notificationService = notificationService;
+        this.fanoutScheduler = fanoutScheduler;
+        this.applicationInfoManager = applicationInfoManager;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (applicationInfoManager.getIfAvailable() == null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-metadata-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::publish, 0, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Registers the current load with Eureka if it changed since the last call
+     */
+    void publish() {
+        ApplicationInfoManager manager = applicationInfoManager.getIfAvailable();
+        if (manager == null) {
+            return;
+        }
+        Map<String, String> load = Map.of(
+                EMITTERS, Integer.toString(notificationService.getEmitters().size()),
+                FANOUT_QUEUE, Integer.toString(fanoutScheduler.pendingBatches()));
+        if (load.equals(published)) {
+            return;
+        }
+        try {
+            manager.registerAppMetadata(load);
+            published = load;
+        } catch (RuntimeException e) {
+            logger.warn("Could not publish load metadata", e);
+        }
+    }
+}
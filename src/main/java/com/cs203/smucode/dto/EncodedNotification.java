@@ -0,0 +1,208 @@
+package com.cs203.smucode.dto;
+
+import com.cs203.smucode.constants.NotificationCategory;
+import com.cs203.smucode.constants.NotificationType;
+import com.cs203.smucode.constants.WireFormat;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * One outgoing notification and its SSE payload in each {@link WireFormat}.
+ *
+ * <p>Each format is encoded the first time a recipient needs it and then shared by
+ * every other recipient of the event, whichever fan-out batch they are in.
+ * </p>
+ *
+ * <p>{@link WireFormat#COMPACT} is a JSON object with the keys {@code i} (id),
+ * {@code ti} (tournament id), {@code tn} (tournament name), {@code m} (message),
+ * {@code ty} (type ordinal), {@code c} (category ordinal), {@code at} (created at, epoch
+ * milliseconds) and {@code r} (read, 0 or 1). {@link WireFormat#CBOR} is a CBOR array of
+ * the same eight values in that order, UUIDs as 16 byte strings and read as a boolean,
+ * base64 encoded so that it fits in an SSE {@code data:} line.
+ * </p>
+ *
+ * <p>Also carries the event's SSE {@code id}, the notification's {@code updatedAt}, which
+ * a reconnecting client sends back as {@code Last-Event-ID} to replay what it missed.
+ * </p>
+ */
+public final class EncodedNotification {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final OutgoingNotificationDTO notification;
+    private final String eventId;
+    private final AtomicReferenceArray<String> encoded = new AtomicReferenceArray<>(WireFormat.values().length);
+
+    public EncodedNotification(OutgoingNotificationDTO notification) {
+        this(notification, null);
+    }
+
+    /**
+     * @param notification notification to encode
+     * @param updatedAt the notification's {@code updatedAt}, its event id; null for none
+     */
+    public EncodedNotification(OutgoingNotificationDTO notification, LocalDateTime updatedAt) {
+        this.notification = notification;
+        this.eventId = eventId(updatedAt);
+    }
+
+    public OutgoingNotificationDTO notification() {
+        return notification;
+    }
+
+    /**
+     * @return the SSE {@code id} of the event, null if it has none
+     */
+    public String eventId() {
+        return eventId;
+    }
+
+    /**
+     * SSE {@code id} for a notification last changed at {@code updatedAt}, parsed back with
+     * {@link LocalDateTime#parse}
+     */
+    public static String eventId(LocalDateTime updatedAt) {
+        return updatedAt == null ? null : updatedAt.toString();
+    }
+
+    /**
+     * @return the payload in {@code format}, encoded on first use
+     */
+    public String get(WireFormat format) {
+        String payload = encoded.get(format.ordinal());
+        if (payload == null) {
+            payload = encode(notification, format);
+            // Batches racing here encode the same bytes, keep whichever landed first
+            if (!encoded.compareAndSet(format.ordinal(), null, payload)) {
+                payload = encoded.get(format.ordinal());
+            }
+        }
+        return payload;
+    }
+
+    static String encode(OutgoingNotificationDTO notification, WireFormat format) {
+        return switch (format) {
+            case JSON -> notification.toJson();
+            case COMPACT -> compactJson(notification);
+            case CBOR -> Base64.getEncoder().encodeToString(cbor(notification));
+        };
+    }
+
+    private static String compactJson(OutgoingNotificationDTO notification) {
+        StringWriter writer = new StringWriter(160);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("i", string(notification.id()));
+            generator.writeStringField("ti", string(notification.tournamentId()));
+            generator.writeStringField("tn", notification.tournamentName());
+            generator.writeStringField("m", notification.message());
+            writeNumberOrNull(generator, "ty", typeOrdinal(notification.type()));
+            writeNumberOrNull(generator, "c", categoryOrdinal(notification.category()));
+            writeNumberOrNull(generator, "at", epochMillis(notification.createdAt()));
+            writeNumberOrNull(generator, "r", notification.isRead() == null ? null : notification.isRead() ? 1L : 0L);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    private static byte[] cbor(OutgoingNotificationDTO notification) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        out.write(0x88); // array of 8
+        writeCborUuid(out, notification.id());
+        writeCborUuid(out, notification.tournamentId());
+        writeCborText(out, notification.tournamentName());
+        writeCborText(out, notification.message());
+        writeCborUnsigned(out, typeOrdinal(notification.type()));
+        writeCborUnsigned(out, categoryOrdinal(notification.category()));
+        writeCborUnsigned(out, epochMillis(notification.createdAt()));
+        out.write(notification.isRead() == null ? 0xf6 : notification.isRead() ? 0xf5 : 0xf4);
+        return out.toByteArray();
+    }
+
+    private static void writeCborUuid(ByteArrayOutputStream out, UUID uuid) {
+        if (uuid == null) {
+            out.write(0xf6);
+            return;
+        }
+        writeCborHead(out, 2, 16);
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (msb >>> shift));
+        }
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (lsb >>> shift));
+        }
+    }
+
+    private static void writeCborText(ByteArrayOutputStream out, String text) {
+        if (text == null) {
+            out.write(0xf6);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeCborHead(out, 3, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static void writeCborUnsigned(ByteArrayOutputStream out, Long value) {
+        if (value == null) {
+            out.write(0xf6);
+            return;
+        }
+        writeCborHead(out, 0, value);
+    }
+
+    /**
+     * Major type and argument, in the shortest of the CBOR head encodings
+     */
+    private static void writeCborHead(ByteArrayOutputStream out, int majorType, long argument) {
+        int major = majorType << 5;
+        if (argument < 24) {
+            out.write(major | (int) argument);
+            return;
+        }
+        int bytes = argument < 0x100 ? 1 : argument < 0x10000 ? 2 : argument < 0x100000000L ? 4 : 8;
+        out.write(major | (bytes == 1 ? 24 : bytes == 2 ? 25 : bytes == 4 ? 26 : 27));
+        for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (argument >>> shift));
+        }
+    }
+
+    private static void writeNumberOrNull(JsonGenerator generator, String field, Long value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(field);
+        } else {
+            generator.writeNumberField(field, value);
+        }
+    }
+
+    private static String string(UUID uuid) {
+        return uuid == null ? null : uuid.toString();
+    }
+
+    private static Long typeOrdinal(String type) {
+        return type == null ? null : (long) NotificationType.valueOf(type.toUpperCase()).ordinal();
+    }
+
+    private static Long categoryOrdinal(String category) {
+        return category == null ? null : (long) NotificationCategory.valueOf(category.toUpperCase()).ordinal();
+    }
+
+    private static Long epochMillis(LocalDateTime time) {
+        return time == null ? null : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,43 @@
+package com.cs203.smucode.dto;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Version of a user's inbox: a counter bumped in the same transaction as every insert,
+ * release and read/unread toggle that reaches the inbox, and when that last happened.
+ *
+ * <p>The counter lives in the database, so every replica hands out the same ETag for the
+ * same inbox. Row locks serialise the bumps, so two writes that commit one after the other
+ * always leave different versions, however their flushes interleave.
+ * </p>
+ *
+ * @param version bumps so far, 0 for a user who has never had a notification
+ * @param changedAt when the last bump was written, null if there was none
+ */
+public record InboxVersion(
+    long version,
+
+    LocalDateTime changedAt
+) {
+
+    public static final InboxVersion EMPTY = new InboxVersion(0, null);
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    /**
+     * ETag for a representation of the inbox, eg. its gzip encoding or a filtered view.
+     * The time keeps it from repeating if the versions table is ever recreated.
+     */
+    public String eTag(String variant) {
+        long micros = changedAt == null ? 0 : ChronoUnit.MICROS.between(EPOCH, changedAt);
+        return "\"" + Long.toString(version, 36) + "-" + Long.toString(micros, 36) + "-" + variant + "\"";
+    }
+
+    /**
+     * Whether the inbox changed within the last {@code millis}, on any replica
+     */
+    public boolean changedWithin(long millis) {
+        return changedAt != null && !changedAt.isBefore(LocalDateTime.now().minus(millis, ChronoUnit.MILLIS));
+    }
+}
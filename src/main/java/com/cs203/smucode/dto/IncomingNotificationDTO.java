@@ -1,10 +1,15 @@
 package com.cs203.smucode.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
+import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public record IncomingNotificationDTO(
@@ -15,8 +20,7 @@ public record IncomingNotificationDTO(
     @NotBlank(message = "Tournament name cannot be blank")
     String tournamentName,
 
-    @NotNull(message = "Message cannot be null")
-    @NotBlank(message = "Message cannot be blank")
+    // Either a message or a templateId
     String message,
 
     @NotNull(message = "Notification type cannot be null")
@@ -26,6 +30,27 @@ public record IncomingNotificationDTO(
     String category,
 
     @NotEmpty(message = "Recipients cannot be empty")
-    List<String> recipients
+    List<String> recipients,
 
-) {}
+    // Optional, retries carrying the same key return the original notification instead of creating another
+    @Size(max = 128, message = "Idempotency key cannot exceed 128 characters")
+    String idempotencyKey,
+
+    // Optional, held back until this time and then delivered like any other, a time in the past means now.
+    // Must carry an offset, eg. 2024-11-02T09:00:00Z, so it does not depend on the server's zone
+    OffsetDateTime deliverAt,
+
+    // Optional, a template from notifications.templates.registry rendered with templateParams instead of message
+    @Size(max = 64, message = "Template ID cannot exceed 64 characters")
+    String templateId,
+
+    Map<String, String> templateParams
+
+) {
+
+    @JsonIgnore
+    @AssertTrue(message = "Message cannot be blank unless a template ID is given")
+    public boolean isMessageOrTemplate() {
+        return templateId != null || (message != null && !message.isBlank());
+    }
+}
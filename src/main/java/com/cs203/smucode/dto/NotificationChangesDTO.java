@@ -0,0 +1,10 @@
+package com.cs203.smucode.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record NotificationChangesDTO(
+    List<OutgoingNotificationDTO> changes,
+
+    LocalDateTime watermark
+) {}
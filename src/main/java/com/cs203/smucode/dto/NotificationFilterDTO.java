@@ -0,0 +1,55 @@
+package com.cs203.smucode.dto;
+
+import jakarta.validation.constraints.Size;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Optional inbox filters, bound from the query string of {@code GET /notifications/}
+ */
+public record NotificationFilterDTO(
+    UUID tournamentId,
+
+    String type,
+
+    String category,
+
+    Boolean read,
+
+    // Created at or after, inclusive
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    LocalDateTime from,
+
+    // Created before, exclusive
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    LocalDateTime to,
+
+    // Words matched as prefixes against the message and tournament name
+    @Size(max = 100, message = "Search query cannot exceed 100 characters")
+    String q
+) {
+
+    public boolean isEmpty() {
+        return tournamentId == null && type == null && category == null && read == null
+                && from == null && to == null && (q == null || q.isBlank());
+    }
+
+    /**
+     * SHA-256 of the filter, so no two filters, filtered or not, ever share an ETag
+     */
+    public String fingerprint() {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // every JRE is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
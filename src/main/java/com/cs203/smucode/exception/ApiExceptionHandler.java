@@ -1,5 +1,6 @@
 package com.cs203.smucode.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -30,4 +31,17 @@ public class ApiExceptionHandler {
         );
         return new ResponseEntity<>(apiException, unauthorized);
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(value = {RateLimitExceededException.class})
+    public ResponseEntity<ApiException> handleRateLimitExceededException(RateLimitExceededException e) {
+        HttpStatus tooManyRequests = HttpStatus.TOO_MANY_REQUESTS;
+        ApiException apiException = new ApiException(
+                e.getMessage(),
+                tooManyRequests,
+                ZonedDateTime.now()
+        );
+        return ResponseEntity.status(tooManyRequests)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(apiException);
+    }
+}
@@ -0,0 +1,18 @@
+package com.cs203.smucode.exception;
+
+import com.cs203.smucode.models.Notification;
+import lombok.Getter;
+
+/**
+ * Thrown when a notification with the same idempotency key was already created,
+ * carries the notification that was created the first time.
+ */
+@Getter
+public class DuplicateNotificationException extends RuntimeException {
+    private final Notification existing;
+
+    public DuplicateNotificationException(Notification existing) {
+        super("Notification with idempotency key " + existing.getIdempotencyKey() + " already exists");
+        this.existing = existing;
+    }
+}
@@ -0,0 +1,16 @@
+package com.cs203.smucode.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a request is shed by admission control, answered with a 429
+ */
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
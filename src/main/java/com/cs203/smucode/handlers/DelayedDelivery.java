@@ -0,0 +1,230 @@
+package com.cs203.smucode.handlers;
+
+import com.cs203.smucode.mappers.NotificationMapper;
+import com.cs203.smucode.metrics.ErrorTelemetry;
+import com.cs203.smucode.models.Notification;
+import com.cs203.smucode.services.INotificationService;
+import com.cs203.smucode.utils.HierarchicalTimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Releases scheduled notifications when their {@code deliverAt} comes.
+ *
+ * <p>Scheduled notifications are saved as pending straight away, and only their ids
+ * are held here on a {@link HierarchicalTimingWheel}. A single thread sleeps until the
+ * earliest bucket is due, then claims the due ids through
+ * {@link INotificationService#releaseDue} in chunks of {@code notifications.delayed.batch-size}
+ * and fans them out like any other notification.
+ * </p>
+ *
+ * <p>Each replica holds the notifications it created plus everything pending when it
+ * started, so after a rolling restart several replicas may hold the same id. Claiming
+ * skips rows locked by another replica and ignores those already released, so each
+ * notification is still delivered once. A chunk that cannot be claimed is retried
+ * {@code notifications.delayed.retry-millis} later.
+ * </p>
+ *
+ * <p>Nothing polls the database. A notification held only by a replica that shut down
+ * before it was due is picked up by {@link #rebuild} on whichever replica starts next,
+ * normally the one replacing it.
+ * </p>
+ *
+ * <p>{@code deliverAt} is in the server's zone, like every stored timestamp;
+ * {@link com.cs203.smucode.mappers.NotificationMapper} converts the publisher's offset
+ * on the way in.
+ * </p>
+ */
+@Component
+public class DelayedDelivery {
+
+    public static final String WAITING = "notification.delayed.waiting";
+    public static final String RELEASED = "notification.delayed.released";
+    public static final String LATENESS = "notification.delayed.lateness";
+
+    private static final Logger logger = LoggerFactory.getLogger(DelayedDelivery.class);
+    private static final long MAX_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final int batchSize;
+    private final long retryMillis;
+    private final INotificationService notificationService;
+    private final NotificationMapper notificationMapper;
+    private final EventHandler eventHandler;
+    private final ErrorTelemetry errorTelemetry;
+    private final Counter released;
+    private final Timer lateness;
+    private final HierarchicalTimingWheel<UUID> wheel;
+    private final List<UUID> dueNow = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    private volatile boolean running;
+    private Thread driver;
+
+    @Autowired
+    public DelayedDelivery(@Value("${notifications.delayed.tick-millis:100}") long tickMillis,
+                           @Value("${notifications.delayed.wheel-size:512}") int wheelSize,
+                           @Value("${notifications.delayed.batch-size:500}") int batchSize,
+                           @Value("${notifications.delayed.retry-millis:5000}") long retryMillis,
+                           INotificationService notificationService,
+                           NotificationMapper notificationMapper,
+                           EventHandler eventHandler,
+                           ErrorTelemetry errorTelemetry,
+                           MeterRegistry meterRegistry) {
+        this.batchSize = batchSize;
+        this.retryMillis = retryMillis;
+        this.notificationService = notificationService;
+        this.notificationMapper = notificationMapper;
+        this.eventHandler = eventHandler;
+        this.errorTelemetry = errorTelemetry;
+        this.wheel = new HierarchicalTimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+        this.released = Counter.builder(RELEASED)
+                .description("Scheduled notifications released for delivery")
+                .register(meterRegistry);
+        this.lateness = Timer.builder(LATENESS)
+                .description("Time from a notification's deliverAt until it was released")
+                .register(meterRegistry);
+        Gauge.builder(WAITING, this, DelayedDelivery::waiting)
+                .description("Scheduled notifications held until their delivery time")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        driver = new Thread(this::run, "delayed-delivery");
+        driver.setDaemon(true);
+        driver.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        driver.interrupt();
+        driver.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Puts every notification still pending in the database back on the wheel
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            Map<UUID, LocalDateTime> pending = notificationService.getPendingDeliveries();
+            pending.forEach(this::schedule);
+            logger.info("Scheduled {} pending notifications", pending.size());
+        } catch (RuntimeException e) {
+            errorTelemetry.record("delayedDelivery", e);
+        }
+    }
+
+    /**
+     * Releases the notification at {@code deliverAt}, or as soon as possible if that has passed
+     *
+     * @param id pending notification
+     * @param deliverAt requested delivery time
+     */
+    public void schedule(UUID id, LocalDateTime deliverAt) {
+        scheduleAt(id, deliverAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    private void scheduleAt(UUID id, long deliverAtMillis) {
+        lock.lock();
+        try {
+            long next = wheel.nextExpiration();
+            if (!wheel.add(id, deliverAtMillis)) {
+                dueNow.add(id);
+                changed.signal();
+            } else if (wheel.nextExpiration() < next) {
+                changed.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            List<UUID> due;
+            lock.lock();
+            try {
+                long now = System.currentTimeMillis();
+                due = wheel.advance(now);
+                due.addAll(dueNow);
+                dueNow.clear();
+                if (due.isEmpty()) {
+                    long wait = Math.min(wheel.nextExpiration() - now, MAX_IDLE_MILLIS);
+                    changed.await(wait, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            release(due);
+        }
+    }
+
+    private void release(List<UUID> due) {
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<UUID> chunk = List.copyOf(due.subList(from, Math.min(due.size(), from + batchSize)));
+            List<Notification> claimed;
+            try {
+                claimed = notificationService.releaseDue(chunk);
+            } catch (RuntimeException e) {
+                errorTelemetry.record("delayedDelivery", e);
+                long retryAt = System.currentTimeMillis() + retryMillis;
+                chunk.forEach(id -> scheduleAt(id, retryAt));
+                continue;
+            }
+            for (Notification notification : claimed) {
+                deliver(notification);
+            }
+        }
+    }
+
+    private void deliver(Notification notification) {
+        try {
+            eventHandler.handleEvent(notification.getRecipients(),
+                    notificationMapper.notificationToLiveEventDTO(notification),
+                    notification.getUpdatedAt());
+            released.increment();
+            long deliverAt = notification.getDeliverAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            lateness.record(Math.max(0, System.currentTimeMillis() - deliverAt), TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // Already released, recipients still find it in their inbox
+            errorTelemetry.record("delayedDelivery", e);
+        }
+    }
+
+    private int waiting() {
+        lock.lock();
+        try {
+            return wheel.size() + dueNow.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,7 +1,16 @@
 package com.cs203.smucode.handlers;
 
+import com.cs203.smucode.audit.DeliveryAuditLog;
+import com.cs203.smucode.constants.DeliveryLane;
+import com.cs203.smucode.constants.DeliveryOutcome;
+import com.cs203.smucode.constants.NotificationCategory;
+import com.cs203.smucode.constants.NotificationType;
+import com.cs203.smucode.constants.WireFormat;
+import com.cs203.smucode.dto.EncodedNotification;
 import com.cs203.smucode.dto.OutgoingNotificationDTO;
+import com.cs203.smucode.metrics.NotificationMetrics;
 import com.cs203.smucode.services.INotificationService;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,59 +18,219 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class EventHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(EventHandler.class);
     private final INotificationService notificationService;
+    private final NotificationMetrics notificationMetrics;
+    private final DeliveryAuditLog deliveryAuditLog;
+    private final FanoutScheduler fanoutScheduler;
+    private final OfflineDelivery offlineDelivery;
+    private final WriteCoalescer writeCoalescer;
 
     @Autowired
-    public EventHandler(INotificationService notificationService) {
+    public EventHandler(INotificationService notificationService, NotificationMetrics notificationMetrics,
+                        DeliveryAuditLog deliveryAuditLog, FanoutScheduler fanoutScheduler,
+                        OfflineDelivery offlineDelivery, WriteCoalescer writeCoalescer) {
         this.notificationService = notificationService;
+        this.notificationMetrics = notificationMetrics;
+        this.deliveryAuditLog = deliveryAuditLog;
+        this.fanoutScheduler = fanoutScheduler;
+        this.offlineDelivery = offlineDelivery;
+        this.writeCoalescer = writeCoalescer;
     }
 
     /**
      * Method to handle incoming event
      *
+     * <p>The notification is serialized once per {@link WireFormat} in use, never per
+     * recipient: JSON here, other formats by the first batch with a subscriber that asked
+     * for them. Its recipients are grouped by {@link FanoutScheduler#shardOf shard}, split
+     * into batches and handed to the {@link FanoutScheduler}. Alerts and suspicious
+     * behaviour reports go on the priority lane, everything else on the standard lane.
+     * Recipients of a batch the scheduler sheds are recorded as {@link DeliveryOutcome#SHED}.
+     * </p>
+     *
+     * @param recipients usernames to notify
      * @param notification incoming notification
+     * @param updatedAt the notification's {@code updatedAt}, sent as the SSE event id
      */
-    public void handleEvent(List<String> recipients, OutgoingNotificationDTO notification) {
-        logger.info("Received event: {}", notification);
+    public void handleEvent(List<String> recipients, OutgoingNotificationDTO notification, LocalDateTime updatedAt) {
+        logger.debug("Received event: {} for {} recipients", notification.id(), recipients.size());
+        String type = notification.type();
+        String category = notification.category();
+
+        long start = System.nanoTime();
+        EncodedNotification encoded = new EncodedNotification(notification, updatedAt);
+        // Most subscribers and offline delivery take JSON
+        encoded.get(WireFormat.JSON);
+        notificationMetrics.fanoutStage("serialize", type, category)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        DeliveryLane lane = laneFor(type, category);
+        int batchSize = fanoutScheduler.batchSize();
+        List<List<String>> shards = byShard(recipients);
+        for (int shard = 0; shard < shards.size(); shard++) {
+            List<String> shardRecipients = shards.get(shard);
+            for (int from = 0; from < shardRecipients.size(); from += batchSize) {
+                List<String> batch = shardRecipients.subList(from, Math.min(from + batchSize, shardRecipients.size()));
+                if (!fanoutScheduler.submit(lane, shard, () -> deliverBatch(batch, encoded, lane))) {
+                    shed(batch, notification);
+                }
+            }
+        }
+    }
+
+    private List<List<String>> byShard(List<String> recipients) {
+        int shards = fanoutScheduler.shards();
+        if (shards == 1) {
+            return List.of(recipients);
+        }
+        List<List<String>> byShard = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            byShard.add(new ArrayList<>(recipients.size() / shards + 1));
+        }
+        for (String recipient : recipients) {
+            byShard.get(fanoutScheduler.shardOf(recipient)).add(recipient);
+        }
+        return byShard;
+    }
+
+    private void shed(List<String> recipients, OutgoingNotificationDTO notification) {
+        for (String recipient : recipients) {
+            deliveryAuditLog.record(notification.id(), recipient, DeliveryOutcome.SHED,
+                    notification.type(), notification.category());
+        }
+        notificationMetrics.recordDeliveries(DeliveryOutcome.SHED, notification.type(), notification.category(),
+                recipients.size());
+    }
+
+    /**
+     * Sends one batch of an event and records its metrics and audit trail
+     */
+    private void deliverBatch(List<String> recipients, EncodedNotification encoded, DeliveryLane lane) {
+        OutgoingNotificationDTO notification = encoded.notification();
+        String type = notification.type();
+        String category = notification.category();
+
+        // Resolved once per batch, not once per recipient
+        Timer sendTimer = notificationMetrics.fanoutStage("send", type, category);
+        long categoryBit = categoryBit(category);
+        long typeBit = typeBit(type);
+        long delivered = 0;
+        long skipped = 0;
+        long filtered = 0;
+        long queued = 0;
+        long failed = 0;
 
-        // Notify recipients about the tournament start
         for (String recipient : recipients) {
-            logger.info("Sending event: {} to user: {}", notification, recipient);
-            sendNotification(
-                    recipient,
-                    notification.toJson()
-            );
+            long sendStart = System.nanoTime();
+            DeliveryOutcome outcome = sendNotification(recipient, encoded, lane, categoryBit, typeBit);
+            deliveryAuditLog.record(notification.id(), recipient, outcome, type, category);
+            switch (outcome) {
+                case DELIVERED -> {
+                    sendTimer.record(System.nanoTime() - sendStart, TimeUnit.NANOSECONDS);
+                    delivered++;
+                }
+                case SKIPPED_NO_EMITTER -> skipped++;
+                case FILTERED -> filtered++;
+                case QUEUED_OFFLINE -> queued++;
+                case FAILED -> failed++;
+            }
         }
+
+        notificationMetrics.recordDeliveries(DeliveryOutcome.DELIVERED, type, category, delivered);
+        notificationMetrics.recordDeliveries(DeliveryOutcome.SKIPPED_NO_EMITTER, type, category, skipped);
+        notificationMetrics.recordDeliveries(DeliveryOutcome.FILTERED, type, category, filtered);
+        notificationMetrics.recordDeliveries(DeliveryOutcome.QUEUED_OFFLINE, type, category, queued);
+        notificationMetrics.recordDeliveries(DeliveryOutcome.FAILED, type, category, failed);
+    }
+
+    private static DeliveryLane laneFor(String type, String category) {
+        if (NotificationCategory.ALERT.name().equalsIgnoreCase(category)
+                || NotificationType.SUSPICIOUS_BEHAVIOUR.name().equalsIgnoreCase(type)) {
+            return DeliveryLane.PRIORITY;
+        }
+        return DeliveryLane.STANDARD;
+    }
+
+    private static long categoryBit(String category) {
+        return category == null ? SubscriptionFilter.bit(null)
+                : SubscriptionFilter.bit(NotificationCategory.valueOf(category.toUpperCase()));
+    }
+
+    private static long typeBit(String type) {
+        return type == null ? SubscriptionFilter.bit(null)
+                : SubscriptionFilter.bit(NotificationType.valueOf(type.toUpperCase()));
     }
 
     /**
      * Method to send notification to relevant subscribed users
      *
      * @param username subscriber to send notification to
-     * @param message notification to be sent
+     * @param notification notification to be sent
+     * @return whether the notification was delivered, queued for offline delivery, skipped, filtered or failed
      */
-    public void sendNotification(String username,
-                                 String message) {
+    public DeliveryOutcome sendNotification(String username,
+                                            EncodedNotification notification) {
+        return sendNotification(username, notification, DeliveryLane.PRIORITY);
+    }
+
+    /**
+     * Sends a notification to a subscriber, written at once on the priority lane and
+     * possibly coalesced with others by the {@link WriteCoalescer} on the standard lane
+     *
+     * <p>Users without a live stream are handed to {@link OfflineDelivery} instead, as JSON.
+     * Subscribers whose {@link SubscriptionFilter} leaves out the notification's category
+     * or type are skipped before it is encoded or queued for them.
+     * </p>
+     *
+     * @param username subscriber to send notification to
+     * @param notification notification to be sent, in the subscriber's format
+     * @param lane lane the notification is delivered on
+     * @return whether the notification was delivered, queued for offline delivery, skipped, filtered or failed
+     */
+    public DeliveryOutcome sendNotification(String username, EncodedNotification notification, DeliveryLane lane) {
+        OutgoingNotificationDTO dto = notification.notification();
+        return sendNotification(username, notification, lane, categoryBit(dto.category()), typeBit(dto.type()));
+    }
+
+    private DeliveryOutcome sendNotification(String username, EncodedNotification notification, DeliveryLane lane,
+                                             long categoryBit, long typeBit) {
         Map<String, SseEmitter> emitters = notificationService.getEmitters();
         SseEmitter emitter = emitters.get(username);
 
         if (emitter == null) {
-            logger.info("User: {} does not have associated emitter", username);
-            return;
+            return offlineDelivery.enqueue(username, notification.get(WireFormat.JSON))
+                    ? DeliveryOutcome.QUEUED_OFFLINE
+                    : DeliveryOutcome.SKIPPED_NO_EMITTER;
+        }
+
+        WireFormat format = WireFormat.JSON;
+        if (emitter instanceof SubscriberEmitter subscriber) {
+            if (!subscriber.filter().matches(categoryBit, typeBit)) {
+                return DeliveryOutcome.FILTERED;
+            }
+            format = subscriber.format();
         }
 
         try {
             // Send message as an SSE event
-            emitter.send(SseEmitter.event().data(message));
+            if (!writeCoalescer.send(emitter, notification.eventId(), notification.get(format),
+                    lane == DeliveryLane.PRIORITY)) {
+                return DeliveryOutcome.FAILED; // Too far behind, the stream is being closed
+            }
+            return DeliveryOutcome.DELIVERED;
         } catch (IOException e) { // If there's an error - eg. client disconnecting
             emitter.completeWithError(e); // Marks the SseEmitter as completed due to an error - removes emitter
+            return DeliveryOutcome.FAILED;
         }
     }
 }
@@ -0,0 +1,244 @@
+package com.cs203.smucode.handlers;
+
+import com.cs203.smucode.constants.DeliveryLane;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs fan-out batches on a small pool of worker threads, each with one queue per {@link DeliveryLane}.
+ *
+ * <p>Workers always take from the priority lane first, so an alert waits for at most
+ * the batches already running rather than for a whole broadcast queued ahead of it.
+ * Batches are never interrupted, which is why large broadcasts are split into batches
+ * of {@code notifications.fanout.batch-size} recipients.
+ * </p>
+ *
+ * <p>Recipients are sharded across workers by username ({@link #shardOf}), and every
+ * batch goes to the worker owning its shard. A user's events on one lane are therefore
+ * always handed to their stream in the order they were submitted, however many workers
+ * there are. Workers only queue events on streams and never wait for a socket, see
+ * {@link WriteCoalescer}.
+ * </p>
+ *
+ * <p>Each worker holds at most {@code notifications.fanout.max-queued-batches} batches
+ * per lane. A batch submitted to a full queue is shed and counted under {@value #LANE_SHED};
+ * its notification is stored all the same and reaches the recipients' inboxes.
+ * </p>
+ *
+ * <p>Each lane reports {@value #LANE_LATENCY}, the time from submit to the end of a
+ * batch, against its own SLO. With {@code notifications.fanout.workers} set to 0,
+ * batches run on the submitting thread.
+ * </p>
+ */
+@Component
+public class FanoutScheduler {
+
+    public static final String LANE_LATENCY = "notification.lane.latency";
+    public static final String LANE_QUEUED = "notification.lane.queued";
+    public static final String LANE_SHED = "notification.lane.shed";
+
+    private static final Logger logger = LoggerFactory.getLogger(FanoutScheduler.class);
+
+    private final int workers;
+    private final int batchSize;
+    private final List<Shard> shards = new ArrayList<>();
+    private final Map<DeliveryLane, Timer> latency = new EnumMap<>(DeliveryLane.class);
+    private final Map<DeliveryLane, Counter> shed = new EnumMap<>(DeliveryLane.class);
+    private final List<Thread> threads = new ArrayList<>();
+    // Batches submitted but not yet finished, queued or running
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private volatile boolean running;
+
+    @Autowired
+    public FanoutScheduler(@Value("${notifications.fanout.workers:2}") int workers,
+                           @Value("${notifications.fanout.batch-size:256}") int batchSize,
+                           @Value("${notifications.fanout.max-queued-batches:1024}") int maxQueuedBatches,
+                           @Value("${notifications.fanout.priority-slo-millis:100}") long prioritySloMillis,
+                           @Value("${notifications.fanout.standard-slo-millis:5000}") long standardSloMillis,
+                           MeterRegistry registry) {
+        this.workers = workers;
+        this.batchSize = batchSize;
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            shards.add(new Shard(maxQueuedBatches));
+        }
+        for (DeliveryLane lane : DeliveryLane.values()) {
+            String tag = lane.name().toLowerCase();
+            Duration slo = Duration.ofMillis(lane == DeliveryLane.PRIORITY ? prioritySloMillis : standardSloMillis);
+            latency.put(lane, Timer.builder(LANE_LATENCY)
+                    .description("Time from scheduling a fan-out batch to its last send")
+                    .tag("lane", tag)
+                    .serviceLevelObjectives(slo)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(registry));
+            shed.put(lane, Counter.builder(LANE_SHED)
+                    .description("Fan-out batches dropped because their worker's queue was full")
+                    .tag("lane", tag)
+                    .register(registry));
+            Gauge.builder(LANE_QUEUED, shards, all -> all.stream().mapToInt(shard -> shard.queues.get(lane).size()).sum())
+                    .description("Fan-out batches waiting for a worker")
+                    .tag("lane", tag)
+                    .register(registry);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Shard shard = shards.get(i);
+            Thread thread = new Thread(() -> work(shard), "fanout-worker-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        threads.forEach(Thread::interrupt);
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        threads.clear();
+    }
+
+    /**
+     * Maximum recipients per batch, callers split their recipient lists to this size
+     */
+    public int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Number of shards recipients are split over, one per worker
+     */
+    public int shards() {
+        return shards.size();
+    }
+
+    /**
+     * Shard whose worker delivers to {@code username}
+     */
+    public int shardOf(String username) {
+        return Math.floorMod(username.hashCode(), shards.size());
+    }
+
+    /**
+     * Batches submitted but not yet finished, whether queued or running
+     */
+    public int pendingBatches() {
+        return pending.get();
+    }
+
+    /**
+     * Queues one batch of deliveries
+     *
+     * @param lane lane to queue the batch on
+     * @param shard {@link #shardOf} every recipient in the batch
+     * @param batch deliveries to run
+     * @return false if the shard's queue for the lane was full and the batch was shed
+     */
+    public boolean submit(DeliveryLane lane, int shard, Runnable batch) {
+        Batch scheduled = new Batch(lane, batch, System.nanoTime());
+        pending.incrementAndGet();
+        if (workers == 0) {
+            run(scheduled);
+            return true;
+        }
+        Shard target = shards.get(shard);
+        if (!target.queues.get(lane).offer(scheduled)) {
+            pending.decrementAndGet();
+            shed.get(lane).increment();
+            return false;
+        }
+        target.queued.release();
+        return true;
+    }
+
+    private void work(Shard shard) {
+        while (running) {
+            try {
+                shard.queued.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            Batch batch = shard.queues.get(DeliveryLane.PRIORITY).poll();
+            if (batch == null) {
+                batch = shard.queues.get(DeliveryLane.STANDARD).poll();
+            }
+            if (batch != null) {
+                run(batch);
+            }
+        }
+    }
+
+    private void run(Batch batch) {
+        try {
+            batch.task.run();
+        } catch (RuntimeException e) {
+            logger.warn("Fan-out batch failed on {} lane", batch.lane, e);
+        } finally {
+            latency.get(batch.lane).record(System.nanoTime() - batch.submittedAt, TimeUnit.NANOSECONDS);
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Waits until every batch submitted so far has been sent
+     *
+     * @param timeout how long to wait at most
+     * @return true if the scheduler went idle, false if the timeout passed first
+     */
+    public boolean awaitIdle(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pending.get() > 0) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private record Batch(DeliveryLane lane, Runnable task, long submittedAt) {
+    }
+
+    /**
+     * One worker's lanes
+     */
+    private static final class Shard {
+
+        private final Map<DeliveryLane, Queue<Batch>> queues = new EnumMap<>(DeliveryLane.class);
+        // One permit per queued batch, across both lanes
+        private final Semaphore queued = new Semaphore(0);
+
+        private Shard(int maxQueuedBatches) {
+            for (DeliveryLane lane : DeliveryLane.values()) {
+                queues.put(lane, new ArrayBlockingQueue<>(maxQueuedBatches));
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.cs203.smucode.handlers;
+
+import com.cs203.smucode.metrics.ErrorTelemetry;
+import com.cs203.smucode.repositories.InboxVersionUpdates;
+import com.cs203.smucode.services.IInboxVersionService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drops cached inbox versions when another instance bumps them.
+ *
+ * <p>{@link InboxVersionUpdates#bump} notifies {@value InboxVersionUpdates#CHANNEL} with the
+ * usernames it bumped, and Postgres delivers that to every session listening on the
+ * channel once the bump commits. This listens on a connection of its own, opened from
+ * {@code spring.datasource.*} rather than taken from the pool, which it would hold for
+ * good.
+ * </p>
+ *
+ * <p>Notifications sent while the connection is down are lost, so every cached version is
+ * dropped each time it (re)connects, after {@code notifications.inbox.version-listener-retry-millis}.
+ * On any database but Postgres there is nothing to listen to and the thread ends at once;
+ * versions are then dropped only by this instance's own writes and their TTL.
+ * </p>
+ */
+@Component
+public class InboxVersionListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(InboxVersionListener.class);
+    private static final int POLL_MILLIS = 500;
+
+    private final DataSourceProperties dataSourceProperties;
+    private final IInboxVersionService inboxVersionService;
+    private final ErrorTelemetry errorTelemetry;
+    private final long retryMillis;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    @Autowired
+    public InboxVersionListener(DataSourceProperties dataSourceProperties,
+                                IInboxVersionService inboxVersionService,
+                                ErrorTelemetry errorTelemetry,
+                                @Value("${notifications.inbox.version-listener-retry-millis:5000}") long retryMillis) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.inboxVersionService = inboxVersionService;
+        this.errorTelemetry = errorTelemetry;
+        this.retryMillis = retryMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listener = new Thread(this::run, "inbox-version-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        listener.interrupt();
+        listener.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                if (!connection.isWrapperFor(PGConnection.class)) {
+                    logger.info("Not on Postgres, cached inbox versions only see this instance's writes");
+                    return;
+                }
+                listen(connection);
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                errorTelemetry.record("inboxVersionListener", e);
+            }
+            try {
+                Thread.sleep(retryMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void listen(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + InboxVersionUpdates.CHANNEL);
+        }
+        // Anything bumped before now may have been missed
+        inboxVersionService.invalidateAll();
+        PGConnection postgres = connection.unwrap(PGConnection.class);
+        while (running) {
+            PGNotification[] notifications = postgres.getNotifications(POLL_MILLIS);
+            if (notifications == null) {
+                continue;
+            }
+            for (PGNotification notification : notifications) {
+                inboxVersionService.invalidate(Arrays.asList(
+                        notification.getParameter().split(String.valueOf(InboxVersionUpdates.SEPARATOR))));
+            }
+        }
+    }
+}
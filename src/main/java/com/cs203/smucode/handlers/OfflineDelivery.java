@@ -0,0 +1,270 @@
+package com.cs203.smucode.handlers;
+
+import com.cs203.smucode.metrics.ErrorTelemetry;
+import com.cs203.smucode.utils.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.sns.SnsAsyncClient;
+import software.amazon.awssdk.services.sns.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sns.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sns.model.PublishBatchRequest;
+import software.amazon.awssdk.services.sns.model.PublishBatchRequestEntry;
+import software.amazon.awssdk.services.sns.model.PublishBatchResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pushes notifications for users without a live stream to SNS.
+ *
+ * <p>Fan-out workers only offer the recipient and the already serialized message to a
+ * lock-free ring buffer. A single dispatcher thread drains it into
+ * {@code PublishBatch} calls of up to {@value #MAX_BATCH_SIZE} entries, sending a
+ * partial batch once its oldest entry has waited {@code notifications.offline.linger-millis}.
+ * Every entry goes to the same topic with a {@value #RECIPIENT_ATTRIBUTE} message
+ * attribute, so subscribers pick their users with a filter policy.
+ * </p>
+ *
+ * <p>At most {@code notifications.offline.max-in-flight} batches are outstanding at
+ * once; the dispatcher waits for a permit beyond that and the ring buffer absorbs the
+ * backlog. When the buffer is full, messages are dropped and counted, as in
+ * {@link com.cs203.smucode.audit.DeliveryAuditLog}.
+ * </p>
+ */
+@Component
+public class OfflineDelivery {
+
+    public static final String PUBLISHED = "notification.offline.published";
+    public static final String FAILED = "notification.offline.failed";
+    public static final String DROPPED = "notification.offline.dropped";
+    public static final String BATCH = "notification.offline.batch";
+    public static final String IN_FLIGHT = "notification.offline.in_flight";
+    public static final String RECIPIENT_ATTRIBUTE = "recipient";
+
+    // PublishBatch accepts at most 10 entries per request
+    static final int MAX_BATCH_SIZE = 10;
+
+    private static final Logger logger = LoggerFactory.getLogger(OfflineDelivery.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final String topicArn;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final int maxInFlight;
+    private final MpscRingBuffer<OfflineMessage> buffer;
+    private final Semaphore permits;
+    private final SnsAsyncClient snsClient;
+    private final ErrorTelemetry errorTelemetry;
+    private final Counter published;
+    private final Counter dropped;
+    private final Counter rejected;
+    private final Counter senderFault;
+    private final Counter serviceFault;
+    private final Timer batchTimer;
+
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    @Autowired
+    public OfflineDelivery(@Value("${notifications.offline.enabled:false}") boolean enabled,
+                           @Value("${notifications.offline.topic-arn:}") String topicArn,
+                           @Value("${notifications.offline.batch-size:10}") int batchSize,
+                           @Value("${notifications.offline.linger-millis:20}") long lingerMillis,
+                           @Value("${notifications.offline.max-in-flight:16}") int maxInFlight,
+                           @Value("${notifications.offline.buffer-size:65536}") int bufferSize,
+                           ObjectProvider<SnsAsyncClient> snsClients,
+                           ErrorTelemetry errorTelemetry,
+                           MeterRegistry registry) {
+        // The client is only looked up when enabled, and it is an error for it to be missing then
+        this(enabled, topicArn, batchSize, lingerMillis, maxInFlight, bufferSize,
+                enabled ? snsClients.getObject() : null, errorTelemetry, registry);
+    }
+
+    /**
+     * @param snsClient client to publish with, null when disabled
+     */
+    public OfflineDelivery(boolean enabled, String topicArn, int batchSize, long lingerMillis, int maxInFlight,
+                           int bufferSize, SnsAsyncClient snsClient, ErrorTelemetry errorTelemetry,
+                           MeterRegistry registry) {
+        if (enabled && (topicArn == null || topicArn.isBlank())) {
+            throw new IllegalArgumentException("notifications.offline.topic-arn must be set when offline delivery is enabled");
+        }
+        this.enabled = enabled;
+        this.topicArn = topicArn;
+        this.batchSize = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.maxInFlight = maxInFlight;
+        this.buffer = new MpscRingBuffer<>(bufferSize);
+        this.permits = new Semaphore(maxInFlight);
+        this.snsClient = snsClient;
+        this.errorTelemetry = errorTelemetry;
+        this.published = Counter.builder(PUBLISHED)
+                .description("Offline notifications accepted by SNS")
+                .register(registry);
+        this.dropped = Counter.builder(DROPPED)
+                .description("Offline notifications dropped because the buffer was full")
+                .register(registry);
+        this.rejected = failedCounter(registry, "request");
+        this.senderFault = failedCounter(registry, "sender_fault");
+        this.serviceFault = failedCounter(registry, "service_fault");
+        this.batchTimer = Timer.builder(BATCH)
+                .description("Time from sending a PublishBatch request to its response")
+                .register(registry);
+        Gauge.builder(IN_FLIGHT, this, delivery -> delivery.maxInFlight - delivery.permits.availablePermits())
+                .description("PublishBatch requests awaiting a response")
+                .register(registry);
+    }
+
+    private static Counter failedCounter(MeterRegistry registry, String reason) {
+        return Counter.builder(FAILED)
+                .description("Offline notifications SNS did not accept")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        dispatcher = new Thread(this::dispatch, "offline-delivery-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Publishes what is still buffered, then waits for outstanding batches to complete
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (dispatcher == null) {
+            return;
+        }
+        LockSupport.unpark(dispatcher);
+        dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        if (!permits.tryAcquire(maxInFlight, 5, TimeUnit.SECONDS)) {
+            logger.warn("Stopped with {} offline batches still in flight", maxInFlight - permits.availablePermits());
+            return;
+        }
+        permits.release(maxInFlight);
+    }
+
+    /**
+     * Queues a notification for a user without a live stream, without blocking the caller
+     *
+     * @param username recipient
+     * @param message serialized notification
+     * @return false if offline delivery is disabled or the buffer is full
+     */
+    public boolean enqueue(String username, String message) {
+        if (!enabled) {
+            return false;
+        }
+        if (!buffer.offer(new OfflineMessage(username, message))) {
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private void dispatch() {
+        List<OfflineMessage> batch = new ArrayList<>(batchSize);
+        long lingerDeadline = 0;
+        while (true) {
+            OfflineMessage message = buffer.poll();
+            if (message != null) {
+                if (batch.isEmpty()) {
+                    lingerDeadline = System.nanoTime() + lingerNanos;
+                }
+                batch.add(message);
+                if (batch.size() == batchSize) {
+                    publish(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+                continue;
+            }
+            boolean stopping = !running;
+            if (!batch.isEmpty() && (stopping || System.nanoTime() - lingerDeadline >= 0)) {
+                publish(batch);
+                batch = new ArrayList<>(batchSize);
+                continue;
+            }
+            if (stopping) {
+                return;
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    private void publish(List<OfflineMessage> batch) {
+        List<PublishBatchRequestEntry> entries = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            OfflineMessage message = batch.get(i);
+            entries.add(PublishBatchRequestEntry.builder()
+                    .id(Integer.toString(i))
+                    .message(message.message())
+                    .messageAttributes(Map.of(RECIPIENT_ATTRIBUTE, MessageAttributeValue.builder()
+                            .dataType("String")
+                            .stringValue(message.username())
+                            .build()))
+                    .build());
+        }
+        PublishBatchRequest request = PublishBatchRequest.builder()
+                .topicArn(topicArn)
+                .publishBatchRequestEntries(entries)
+                .build();
+
+        permits.acquireUninterruptibly();
+        long start = System.nanoTime();
+        try {
+            snsClient.publishBatch(request)
+                    .whenComplete((response, error) -> complete(batch.size(), start, response, error));
+        } catch (RuntimeException e) {
+            complete(batch.size(), start, null, e);
+        }
+    }
+
+    private void complete(int size, long start, PublishBatchResponse response, Throwable error) {
+        try {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (error != null) {
+                rejected.increment(size);
+                errorTelemetry.record("offlineDelivery",
+                        error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                return;
+            }
+            published.increment(response.successful().size());
+            for (BatchResultErrorEntry failure : response.failed()) {
+                if (Boolean.TRUE.equals(failure.senderFault())) {
+                    senderFault.increment();
+                } else {
+                    serviceFault.increment();
+                }
+                logger.debug("SNS rejected offline notification: {} {}", failure.code(), failure.message());
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private record OfflineMessage(String username, String message) {
+    }
+}
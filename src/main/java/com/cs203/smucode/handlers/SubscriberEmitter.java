@@ -0,0 +1,190 @@
+package com.cs203.smucode.handlers;
+
+import com.cs203.smucode.constants.WireFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stream of one subscriber that writes each batch of events as a single chunk.
+ *
+ * <p>A plain {@link SseEmitter} hands the {@code data:} prefix, the payload and the
+ * trailing blank line to the message converters separately, and every converter
+ * write flushes the response, so one event costs three socket writes. Events with text
+ * data are rendered here into one string instead.
+ * </p>
+ *
+ * <p>{@link WriteCoalescer} queues events here and later writes them all at once from
+ * one of its writer threads. Any other send on this emitter, such as the drain notice
+ * at shutdown, writes the queued events first so that the client always sees them in
+ * order.
+ * </p>
+ *
+ * <p>The waiting events are guarded by their own lock, held only to append or to take
+ * the whole buffer, never during a write. {@link SseEmitter} already synchronizes its
+ * sends on itself, so using the emitter's monitor for the buffer would make every
+ * {@link #queue} wait for a slow client's socket. Writers take the buffer and write it
+ * under a separate write lock, which keeps chunks in the order they were taken.
+ * </p>
+ *
+ * <p>Also remembers the {@link WireFormat} and the {@link SubscriptionFilter} the
+ * subscriber asked for.
+ * </p>
+ */
+public class SubscriberEmitter extends SseEmitter {
+
+    private static final MediaType TEXT_PLAIN = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+    private final WireFormat format;
+    private final SubscriptionFilter filter;
+    private final Object bufferLock = new Object();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicBoolean dropped = new AtomicBoolean();
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingEvents;
+    private long pendingSinceNanos;
+
+    public SubscriberEmitter(Long timeout) {
+        this(timeout, WireFormat.JSON, SubscriptionFilter.ALL);
+    }
+
+    public SubscriberEmitter(Long timeout, WireFormat format, SubscriptionFilter filter) {
+        super(timeout);
+        this.format = format;
+        this.filter = filter;
+    }
+
+    public WireFormat format() {
+        return format;
+    }
+
+    public SubscriptionFilter filter() {
+        return filter;
+    }
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+        flush(builder);
+    }
+
+    /**
+     * Adds an event with text data to the next write, unless {@code limit} events are
+     * already waiting
+     *
+     * @return number of events now waiting, or -1 if the event was not queued
+     */
+    int queue(SseEventBuilder event, int limit) {
+        Set<DataWithMediaType> items = event.build();
+        synchronized (bufferLock) {
+            if (pendingEvents >= limit) {
+                return -1;
+            }
+            if (pendingEvents == 0) {
+                pendingSinceNanos = System.nanoTime();
+            }
+            for (DataWithMediaType item : items) {
+                pending.append(item.getData());
+            }
+            return ++pendingEvents;
+        }
+    }
+
+    /**
+     * Writes the waiting events followed by {@code event}, waiting for any write in progress
+     *
+     * @return number of events written
+     */
+    int flush(SseEventBuilder event) throws IOException {
+        Set<DataWithMediaType> items = event.build();
+        // Objects still need a message converter
+        boolean text = items.stream().allMatch(item -> item.getData() instanceof CharSequence);
+        int events;
+        writeLock.lock();
+        try {
+            if (text) {
+                synchronized (bufferLock) {
+                    for (DataWithMediaType item : items) {
+                        pending.append(item.getData());
+                    }
+                    pendingEvents++;
+                }
+            }
+            events = writeBuffer();
+            if (!text) {
+                send(items);
+                events++;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return events + writeQueued();
+    }
+
+    /**
+     * Writes the waiting events, unless another thread is already writing to this stream.
+     *
+     * <p>That thread checks for waiting events again once it lets go of the stream, so
+     * nothing queued is left behind either way.
+     * </p>
+     *
+     * @return number of events written by this call
+     */
+    int writeQueued() throws IOException {
+        int events = 0;
+        while (hasPending() && writeLock.tryLock()) {
+            try {
+                events += writeBuffer();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Marks the stream as too far behind to keep
+     *
+     * @return true the first time only, so that it is closed once
+     */
+    boolean drop() {
+        return dropped.compareAndSet(false, true);
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when the oldest waiting event was queued
+     */
+    long pendingSinceNanos() {
+        synchronized (bufferLock) {
+            return pendingSinceNanos;
+        }
+    }
+
+    private boolean hasPending() {
+        synchronized (bufferLock) {
+            return pendingEvents > 0;
+        }
+    }
+
+    /**
+     * Takes the whole buffer and writes it as one chunk, with the write lock held
+     */
+    private int writeBuffer() throws IOException {
+        String chunk;
+        int events;
+        synchronized (bufferLock) {
+            events = pendingEvents;
+            chunk = pending.toString();
+            pending.setLength(0);
+            pendingEvents = 0;
+        }
+        if (events > 0) {
+            send(Set.of(new DataWithMediaType(chunk, TEXT_PLAIN)));
+        }
+        return events;
+    }
+}
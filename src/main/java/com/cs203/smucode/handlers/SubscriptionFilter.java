@@ -0,0 +1,67 @@
+package com.cs203.smucode.handlers;
+
+import com.cs203.smucode.constants.NotificationCategory;
+import com.cs203.smucode.constants.NotificationType;
+
+import java.util.Collection;
+
+/**
+ * Categories and types a subscriber wants streamed, as bitmasks over the enum ordinals.
+ *
+ * <p>Checked in fan-out before anything is encoded or queued for the connection, so an
+ * event the subscriber filtered out costs one mask test. Filtered events are still
+ * stored and show up in the inbox; only the live stream leaves them out.
+ * </p>
+ *
+ * @param categories bit {@code 1 << ordinal} set for each wanted {@link NotificationCategory}
+ * @param types bit {@code 1 << ordinal} set for each wanted {@link NotificationType}
+ */
+public record SubscriptionFilter(long categories, long types) {
+
+    public static final SubscriptionFilter ALL = new SubscriptionFilter(-1L, -1L);
+
+    static {
+        // One long per mask
+        if (NotificationCategory.values().length > Long.SIZE || NotificationType.values().length > Long.SIZE) {
+            throw new ExceptionInInitializerError("Too many notification categories or types for a bitmask");
+        }
+    }
+
+    /**
+     * @param categories wanted categories, every category if null or empty
+     * @param types wanted types, every type if null or empty
+     */
+    public static SubscriptionFilter of(Collection<NotificationCategory> categories, Collection<NotificationType> types) {
+        return new SubscriptionFilter(mask(categories), mask(types));
+    }
+
+    /**
+     * @return the bit of {@code value}, or every bit if it is null so that it matches any filter
+     */
+    public static long bit(Enum<?> value) {
+        return value == null ? -1L : 1L << value.ordinal();
+    }
+
+    /**
+     * @param categoryBit {@link #bit} of the event's category
+     * @param typeBit {@link #bit} of the event's type
+     */
+    public boolean matches(long categoryBit, long typeBit) {
+        return (categories & categoryBit) != 0 && (types & typeBit) != 0;
+    }
+
+    public boolean matches(NotificationCategory category, NotificationType type) {
+        return matches(bit(category), bit(type));
+    }
+
+    private static long mask(Collection<? extends Enum<?>> values) {
+        if (values == null || values.isEmpty()) {
+            return -1L;
+        }
+        long mask = 0;
+        for (Enum<?> value : values) {
+            mask |= bit(value);
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,191 @@
+package com.cs203.smucode.handlers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes events to subscriber streams, combining those that reach one stream within a
+ * few milliseconds into a single write.
+ *
+ * <p>Fan-out only queues an event on the {@link SubscriberEmitter}; the socket write
+ * happens on one of {@code notifications.stream.event-writer-threads} writer threads, 8 by
+ * default, so a client that is slow to read holds up at most one writer and never a
+ * fan-out worker or any other stream. A stream with {@code notifications.stream.max-queued-events} still
+ * waiting is not keeping up and is closed; the subscriber reconnects and catches up
+ * through delta sync.
+ * </p>
+ *
+ * <p>Each {@code emitter.send} flushes the response, so a burst such as round end,
+ * bracket complete and tournament end used to reach a client as several tiny TCP
+ * writes. With {@code notifications.stream.coalesce.enabled}, the first event for a
+ * stream starts a {@code window-millis} timer and everything that arrives before it
+ * fires goes out with one flush. Priority lane events, alerts and suspicious behaviour
+ * reports, are written at once along with anything already waiting, and a stream with
+ * {@code max-events} waiting is flushed without waiting for the timer. Without
+ * coalescing, events are written as soon as a writer gets to them.
+ * </p>
+ *
+ * <p>{@value #FLUSHES} counts writes by what triggered them and {@value #EVENTS_PER_FLUSH}
+ * how many events each carried, whether coalescing is on or not, so the two can be
+ * compared. {@value #COALESCE_DELAY} is the extra latency paid by the oldest event of a
+ * window.
+ * </p>
+ */
+@Component
+public class WriteCoalescer {
+
+    public static final String FLUSHES = "notification.stream.flushes";
+    public static final String EVENTS_PER_FLUSH = "notification.stream.events_per_flush";
+    public static final String COALESCE_DELAY = "notification.stream.coalesce.delay";
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxEvents;
+    private final int writerThreads;
+    private final int maxQueuedEvents;
+    private final Counter immediateFlushes;
+    private final Counter windowFlushes;
+    private final Counter fullFlushes;
+    private final DistributionSummary eventsPerFlush;
+    private final Timer coalesceDelay;
+
+    private ScheduledThreadPoolExecutor writers;
+
+    @Autowired
+    public WriteCoalescer(@Value("${notifications.stream.coalesce.enabled:false}") boolean enabled,
+                          @Value("${notifications.stream.coalesce.window-millis:5}") long windowMillis,
+                          @Value("${notifications.stream.coalesce.max-events:32}") int maxEvents,
+                          @Value("${notifications.stream.event-writer-threads:8}") int writerThreads,
+                          @Value("${notifications.stream.max-queued-events:1024}") int maxQueuedEvents,
+                          MeterRegistry registry) {
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxEvents = maxEvents;
+        this.writerThreads = writerThreads;
+        this.maxQueuedEvents = maxQueuedEvents;
+        this.immediateFlushes = flushCounter(registry, "immediate");
+        this.windowFlushes = flushCounter(registry, "window");
+        this.fullFlushes = flushCounter(registry, "full");
+        this.eventsPerFlush = DistributionSummary.builder(EVENTS_PER_FLUSH)
+                .description("Events written to a stream per flush")
+                .register(registry);
+        this.coalesceDelay = Timer.builder(COALESCE_DELAY)
+                .description("Time the oldest event of a coalesced write waited for its window")
+                .register(registry);
+    }
+
+    private static Counter flushCounter(MeterRegistry registry, String trigger) {
+        return Counter.builder(FLUSHES)
+                .description("Stream writes by what triggered the flush")
+                .tag("trigger", trigger)
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threads = new AtomicInteger();
+        writers = new ScheduledThreadPoolExecutor(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "stream-writer-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        writers.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Streams are closed by the {@link com.cs203.smucode.lifecycle.ShutdownDrainer} before
+     * this runs, and closing a stream writes whatever was waiting on it
+     */
+    @PreDestroy
+    public void stop() {
+        if (writers != null) {
+            writers.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues {@code message} to be written to the stream now or within the coalescing window
+     *
+     * @param emitter subscriber's stream, written on the calling thread unless it is a {@link SubscriberEmitter}
+     * @param id SSE event id, null for none
+     * @param message serialized notification
+     * @param immediate whether the event must not wait for the window
+     * @return false if the stream had too many events waiting and is being closed instead
+     * @throws IOException if a write made now fails
+     */
+    public boolean send(SseEmitter emitter, String id, String message, boolean immediate) throws IOException {
+        SseEmitter.SseEventBuilder event = SseEmitter.event();
+        if (id != null) {
+            event.id(id);
+        }
+        event.data(message);
+        if (!(emitter instanceof SubscriberEmitter subscriber)) {
+            emitter.send(event);
+            recordFlush(immediateFlushes, 1);
+            return true;
+        }
+        int waiting = subscriber.queue(event, maxQueuedEvents);
+        if (waiting < 0) {
+            if (subscriber.drop()) {
+                // Completing takes the emitter's monitor, which the stalled write is holding
+                writers.execute(() -> subscriber.completeWithError(
+                        new IOException("Stream has " + maxQueuedEvents + " events waiting")));
+            }
+            return false;
+        }
+        // An event queued behind others is picked up by the write already on its way
+        if (!enabled) {
+            if (waiting == 1) {
+                writers.execute(() -> write(subscriber, immediateFlushes));
+            }
+        } else if (immediate) {
+            writers.execute(() -> write(subscriber, immediateFlushes));
+        } else if (waiting == 1) {
+            writers.schedule(() -> flushWindow(subscriber), windowNanos, TimeUnit.NANOSECONDS);
+        } else if (waiting == maxEvents) {
+            writers.execute(() -> write(subscriber, fullFlushes));
+        }
+        return true;
+    }
+
+    private void flushWindow(SubscriberEmitter subscriber) {
+        long since = subscriber.pendingSinceNanos();
+        if (write(subscriber, windowFlushes) > 0) {
+            coalesceDelay.record(System.nanoTime() - since, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private int write(SubscriberEmitter subscriber, Counter trigger) {
+        try {
+            int events = subscriber.writeQueued();
+            recordFlush(trigger, events);
+            return events;
+        } catch (IOException e) { // client went away while the events were waiting
+            subscriber.completeWithError(e);
+        } catch (IllegalStateException e) {
+            // Already completed, nothing to write to
+        }
+        return 0;
+    }
+
+    private void recordFlush(Counter trigger, int events) {
+        if (events == 0) {
+            return;
+        }
+        trigger.increment();
+        eventsPerFlush.record(events);
+    }
+}
@@ -0,0 +1,154 @@
+package com.cs203.smucode.lifecycle;
+
+import com.cs203.smucode.admission.SubscribeAdmission;
+import com.cs203.smucode.handlers.FanoutScheduler;
+import com.cs203.smucode.services.INotificationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.cloud.client.serviceregistry.ServiceRegistry;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands connections over to the other replicas on shutdown instead of dropping them.
+ *
+ * <p>Stops before the web server begins its own graceful shutdown, and in order:
+ * </p>
+ * <ol>
+ *     <li>deregisters from the service registry so no new traffic is routed here,</li>
+ *     <li>defers every new subscription with a {@code retry:} hint,</li>
+ *     <li>waits for the fan-out scheduler to send everything already queued,</li>
+ *     <li>closes open streams in waves of {@code wave-size}, {@code wave-interval-millis}
+ *     apart, each with a jittered {@code retry:} and a final event ID.</li>
+ * </ol>
+ *
+ * <p>The event ID is a watermark: every notification updated at or before it has
+ * already been sent. Browsers send it back as {@code Last-Event-ID} when they
+ * reconnect, and the replica they land on replays everything after it.
+ * </p>
+ */
+@Component
+public class ShutdownDrainer implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShutdownDrainer.class);
+
+    private final INotificationService notificationService;
+    private final FanoutScheduler fanoutScheduler;
+    private final SubscribeAdmission subscribeAdmission;
+    private final ObjectProvider<ServiceRegistry<Registration>> serviceRegistry;
+    private final ObjectProvider<Registration> registration;
+    private final Duration drainTimeout;
+    private final int waveSize;
+    private final long waveIntervalMillis;
+    private final long settleMillis;
+
+    private volatile boolean running;
+
+    @Autowired
+    public ShutdownDrainer(INotificationService notificationService, FanoutScheduler fanoutScheduler,
+                           SubscribeAdmission subscribeAdmission,
+                           ObjectProvider<ServiceRegistry<Registration>> serviceRegistry,
+                           ObjectProvider<Registration> registration,
+                           @Value("${notifications.shutdown.drain-timeout-seconds:20}") long drainTimeoutSeconds,
+                           @Value("${notifications.shutdown.wave-size:500}") int waveSize,
+                           @Value("${notifications.shutdown.wave-interval-millis:200}") long waveIntervalMillis,
+                           @Value("${notifications.sync.settle-millis:1000}") long settleMillis) {
+        this.notificationService = notificationService;
+        this.fanoutScheduler = fanoutScheduler;
+        this.subscribeAdmission = subscribeAdmission;
+        this.serviceRegistry = serviceRegistry;
+        this.registration = registration;
+        this.drainTimeout = Duration.ofSeconds(drainTimeoutSeconds);
+        this.waveSize = waveSize;
+        this.waveIntervalMillis = waveIntervalMillis;
+        this.settleMillis = settleMillis;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        deregister();
+        subscribeAdmission.close();
+
+        // Anything updated before this was saved before draining began, so its fan-out is already queued
+        LocalDateTime watermark = LocalDateTime.now().minusNanos(settleMillis * 1_000_000);
+        try {
+            if (!fanoutScheduler.awaitIdle(drainTimeout)) {
+                logger.warn("Fan-out queue not empty after {}, closing streams anyway", drainTimeout);
+            }
+            closeStreams(watermark.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Before the web server's graceful shutdown, which stops accepting requests
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 512;
+    }
+
+    private void deregister() {
+        ServiceRegistry<Registration> registry = serviceRegistry.getIfAvailable();
+        Registration instance = registration.getIfAvailable();
+        if (registry == null || instance == null) {
+            return;
+        }
+        try {
+            registry.deregister(instance);
+            logger.info("Deregistered {} before draining", instance.getInstanceId());
+        } catch (RuntimeException e) {
+            logger.warn("Could not deregister before draining", e);
+        }
+    }
+
+    private void closeStreams(String lastEventId) throws InterruptedException {
+        List<SseEmitter> emitters = new ArrayList<>(notificationService.getEmitters().values());
+        logger.info("Closing {} streams in waves of {}", emitters.size(), waveSize);
+        for (int from = 0; from < emitters.size(); from += waveSize) {
+            if (from > 0) {
+                Thread.sleep(waveIntervalMillis);
+            }
+            for (SseEmitter emitter : emitters.subList(from, Math.min(from + waveSize, emitters.size()))) {
+                close(emitter, lastEventId);
+            }
+        }
+    }
+
+    private void close(SseEmitter emitter, String lastEventId) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(lastEventId)
+                    .reconnectTime(subscribeAdmission.retryHintMillis())
+                    .comment("draining"));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        } catch (IllegalStateException e) {
+            // Already completed, nothing to hand over
+        }
+    }
+}
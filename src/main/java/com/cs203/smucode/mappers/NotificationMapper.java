@@ -5,25 +5,49 @@ import com.cs203.smucode.constants.NotificationType;
 import com.cs203.smucode.dto.IncomingNotificationDTO;
 import com.cs203.smucode.dto.OutgoingNotificationDTO;
 import com.cs203.smucode.models.Notification;
+import com.cs203.smucode.templates.NotificationTemplates;
+import org.mapstruct.InjectionStrategy;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
 
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
 import java.util.List;
 
-@Mapper(componentModel = "spring")
+@Mapper(componentModel = "spring", uses = NotificationTemplates.class, injectionStrategy = InjectionStrategy.CONSTRUCTOR)
 public interface NotificationMapper {
 
     @Mapping(source = "type", target = "type", qualifiedByName = "stringToNotificationType")
     @Mapping(source = "category", target = "category", qualifiedByName = "stringToNotificationCategory")
+    @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "pending", ignore = true)
+    @Mapping(target = "publisher", ignore = true)
+    @Mapping(target = "templateParams", ignore = true)
+    @Mapping(source = "deliverAt", target = "deliverAt", qualifiedByName = "offsetToServerTime")
     Notification incomingNotificationDTOtoNotification(IncomingNotificationDTO notificationDTO);
 
     @Mapping(source = "type", target = "type", qualifiedByName = "notificationTypeToString")
     @Mapping(source = "category", target = "category", qualifiedByName = "notificationCategoryToString")
+    @Mapping(source = "notification", target = "message", qualifiedByName = "renderMessage")
     OutgoingNotificationDTO notificationToOutgoingNotificationDTO(Notification notification);
 
+    // Live events go to every recipient, so they are rendered in the default locale
+    @Named("liveEvent")
+    @Mapping(source = "type", target = "type", qualifiedByName = "notificationTypeToString")
+    @Mapping(source = "category", target = "category", qualifiedByName = "notificationCategoryToString")
+    @Mapping(source = "notification", target = "message", qualifiedByName = "renderDefaultMessage")
+    OutgoingNotificationDTO notificationToLiveEventDTO(Notification notification);
+
     List<OutgoingNotificationDTO> notificationsToOutgoingNotificationDTOs(List<Notification> notifications);
 
+    // Stored timestamps are in the server's zone, like LocalDateTime.now() for createdAt
+    @Named("offsetToServerTime")
+    default LocalDateTime offsetToServerTime(OffsetDateTime time) {
+        return time == null ? null : time.atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
     @Named("stringToNotificationType")
     default NotificationType stringToNotificationType(String type) {
         return NotificationType.valueOf(type.toUpperCase());
@@ -0,0 +1,132 @@
+package com.cs203.smucode.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate-limited, deduplicated exception reporting.
+ *
+ * <p>Exceptions are fingerprinted by their type and the first stack frame inside
+ * {@code com.cs203.smucode}. Every occurrence is counted in
+ * {@value #ERRORS}, but the stack trace is only logged for the first occurrence
+ * of a fingerprint in each window. The next logged occurrence reports how many
+ * were suppressed in between.
+ * </p>
+ */
+@Component
+public class ErrorTelemetry {
+
+    public static final String ERRORS = "notification.errors";
+
+    private static final Logger logger = LoggerFactory.getLogger(ErrorTelemetry.class);
+    private static final String BASE_PACKAGE = "com.cs203.smucode.";
+    private static final String OVERFLOW = "other";
+
+    private final MeterRegistry registry;
+    private final long windowNanos;
+    private final int maxFingerprints;
+    private final Map<String, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ErrorTelemetry(MeterRegistry registry,
+                          @Value("${notifications.errors.window-seconds:60}") long windowSeconds,
+                          @Value("${notifications.errors.max-fingerprints:500}") int maxFingerprints) {
+        this.registry = registry;
+        this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    /**
+     * Records an exception caught at a service boundary
+     *
+     * @param context what was being done, eg. the endpoint name
+     * @param exception the exception that was caught
+     */
+    public void record(String context, Throwable exception) {
+        String type = exception.getClass().getSimpleName();
+        String origin = originOf(exception);
+        String key = type + "@" + origin;
+
+        Fingerprint fingerprint = fingerprints.get(key);
+        if (fingerprint == null) {
+            if (fingerprints.size() >= maxFingerprints) {
+                // Keep the meter and map bounded, these are still counted but never logged with a trace
+                fingerprintFor(OVERFLOW, OVERFLOW, OVERFLOW).counter.increment();
+                return;
+            }
+            fingerprint = fingerprintFor(key, type, origin);
+        }
+
+        fingerprint.counter.increment();
+        long now = System.nanoTime();
+        long windowStart = fingerprint.windowStart.get();
+        if (now - windowStart >= windowNanos && fingerprint.windowStart.compareAndSet(windowStart, now)) {
+            long suppressed = fingerprint.suppressed.getAndSet(0);
+            logger.error("Exception during {}: {} in {} ({} similar suppressed since last report)",
+                    context, type, origin, suppressed, exception);
+        } else {
+            fingerprint.suppressed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Total occurrences recorded for a fingerprint, mainly for tests
+     */
+    public long count(Class<? extends Throwable> type, String origin) {
+        Fingerprint fingerprint = fingerprints.get(type.getSimpleName() + "@" + origin);
+        return fingerprint == null ? 0 : (long) fingerprint.counter.count();
+    }
+
+    private Fingerprint fingerprintFor(String key, String type, String origin) {
+        return fingerprints.computeIfAbsent(key, k -> new Fingerprint(
+                Counter.builder(ERRORS)
+                        .description("Exceptions by type and origin")
+                        .tag("exception", type)
+                        .tag("origin", origin)
+                        .register(registry),
+                // first occurrence always opens a new window
+                System.nanoTime() - windowNanos
+        ));
+    }
+
+    /**
+     * Class and method of the first stack frame inside this service, falling back to the top frame
+     */
+    static String originOf(Throwable exception) {
+        StackTraceElement[] stackTrace = exception.getStackTrace();
+        if (stackTrace.length == 0) {
+            return "unknown";
+        }
+        StackTraceElement origin = stackTrace[0];
+        for (StackTraceElement frame : stackTrace) {
+            if (frame.getClassName().startsWith(BASE_PACKAGE)) {
+                origin = frame;
+                break;
+            }
+        }
+        // Spring proxies show up as Foo$$SpringCGLIB$$0, report them as the class they proxy
+        String className = origin.getClassName().split("\\$\\$")[0];
+        return className.substring(className.lastIndexOf('.') + 1) + "." + origin.getMethodName();
+    }
+
+    private static final class Fingerprint {
+        private final Counter counter;
+        private final AtomicLong windowStart;
+        private final AtomicLong suppressed = new AtomicLong();
+
+        private Fingerprint(Counter counter, long windowStart) {
+            this.counter = counter;
+            this.windowStart = new AtomicLong(windowStart);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.cs203.smucode.metrics;
+
+import com.cs203.smucode.constants.DeliveryOutcome;
+import com.cs203.smucode.services.INotificationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters for the ingest-to-delivery pipeline.
+ *
+ * <p>Every meter is tagged with the notification type and category, in the same
+ * lower-case form that is sent to clients. Stage timers publish p50/p99 and a
+ * percentile histogram so they can be aggregated across replicas in Prometheus.
+ * </p>
+ */
+@Component
+public class NotificationMetrics {
+
+    public static final String INGEST_STAGE = "notification.ingest.stage";
+    public static final String FANOUT_STAGE = "notification.fanout.stage";
+    public static final String DELIVERIES = "notification.deliveries";
+    public static final String ACTIVE_EMITTERS = "notification.emitters.active";
+
+    public static final String UNKNOWN = "unknown";
+
+    private final MeterRegistry registry;
+
+    @Autowired
+    public NotificationMetrics(MeterRegistry registry, INotificationService notificationService) {
+        this.registry = registry;
+        Gauge.builder(ACTIVE_EMITTERS, notificationService, service -> service.getEmitters().size())
+                .description("Number of open SSE connections")
+                .register(registry);
+    }
+
+    /**
+     * Timer for one stage of {@code POST /notifications/stream}
+     *
+     * @param stage name of the stage, eg. "save"
+     * @param type notification type
+     * @param category notification category
+     */
+    public Timer ingestStage(String stage, String type, String category) {
+        return stageTimer(INGEST_STAGE, stage, type, category);
+    }
+
+    /**
+     * Timer for one stage of the fan-out to subscribers
+     *
+     * @param stage name of the stage, eg. "send"
+     * @param type notification type
+     * @param category notification category
+     */
+    public Timer fanoutStage(String stage, String type, String category) {
+        return stageTimer(FANOUT_STAGE, stage, type, category);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos} against an ingest stage
+     */
+    public void recordIngestStage(String stage, String type, String category, long startNanos) {
+        ingestStage(stage, type, category).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Adds {@code count} deliveries with the given outcome
+     */
+    public void recordDeliveries(DeliveryOutcome outcome, String type, String category, long count) {
+        if (count == 0) {
+            return;
+        }
+        Counter.builder(DELIVERIES)
+                .description("Per-recipient delivery attempts by outcome")
+                .tag("outcome", outcome.name().toLowerCase())
+                .tag("type", type)
+                .tag("category", category)
+                .register(registry)
+                .increment(count);
+    }
+
+    private Timer stageTimer(String name, String stage, String type, String category) {
+        return Timer.builder(name)
+                .tag("stage", stage)
+                .tag("type", type)
+                .tag("category", category)
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -14,7 +14,21 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "notifications")
+@Table(
+        name = "notifications",
+        indexes = {
+                @Index(name = "idx_notifications_updated_at", columnList = "updated_at"),
+                // Inbox reads newest first, and the tournament filter, which is selective on its own.
+                // type, category and read have no index of their own: without the recipient they
+                // cannot narrow one user's inbox, so they are checked on the rows found through it
+                @Index(name = "idx_notifications_created_at", columnList = "created_at"),
+                @Index(name = "idx_notifications_tournament_created", columnList = "tournament_id, created_at")
+        },
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_notifications_publisher_idempotency_key",
+                columnNames = {"publisher", "idempotency_key"}
+        )
+)
 public class Notification {
 
     @Id
@@ -27,9 +41,16 @@ public class Notification {
     @Column(nullable = false)
     private String tournamentName;
 
-    @Column(nullable = false)
+    // Null when the message is rendered from templateId, see NotificationTemplates
     private String message;
 
+    @Column(name = "template_id", length = 64)
+    private String templateId;
+
+    // Template parameter values in placeholder order, separated by U+001F
+    @Column(name = "template_params", length = 1024)
+    private String templateParams;
+
     @Enumerated(EnumType.STRING)
     private NotificationType type;
 
@@ -40,11 +61,44 @@ public class Notification {
 
     private Boolean isRead;
 
+    // Bumped on every insert and update, drives delta sync
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // JWT subject of the service that published it, idempotency keys are only unique per publisher
+    @Column(name = "publisher", length = 128)
+    private String publisher;
+
+    // Publisher-supplied dedup key, null when the publisher did not send one
+    @Column(name = "idempotency_key", length = 128)
+    private String idempotencyKey;
+
+    // Requested delivery time, null for immediate delivery
+    @Column(name = "deliver_at")
+    private LocalDateTime deliverAt;
+
+    // Scheduled and not yet delivered, hidden from every read until DelayedDelivery releases it
+    @Column(nullable = false)
+    private Boolean pending = false;
+
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(
             name = "notification_recipients",
-            joinColumns = @JoinColumn(name = "notification_id")
+            joinColumns = @JoinColumn(name = "notification_id"),
+            indexes = {
+                    // Covers addressedTo, the user's notification ids come straight from the index
+                    @Index(name = "idx_notification_recipients_recipient", columnList = "recipient, notification_id"),
+                    // MEMBER OF is a subquery correlated on notification_id, Postgres does not index foreign keys
+                    @Index(name = "idx_notification_recipients_notification", columnList = "notification_id")
+            }
     )
     @Column(name = "recipient")
     private List<String> recipients;
+
+    // A lifecycle callback rather than @UpdateTimestamp so recipients-array.orm.xml can declare it too
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = LocalDateTime.now();
+    }
 }
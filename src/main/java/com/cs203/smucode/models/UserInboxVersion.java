@@ -0,0 +1,30 @@
+package com.cs203.smucode.models;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Version of one user's inbox, bumped in the same transaction as every write that changes it.
+ * Only ever written through {@link com.cs203.smucode.repositories.InboxVersionUpdates#bump}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "inbox_versions")
+public class UserInboxVersion {
+
+    @Id
+    @Column(name = "username", length = 128)
+    private String username;
+
+    @Column(nullable = false)
+    private Long version;
+
+    // When the last bump's transaction wrote the row, decides whether a read must go to the primary
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
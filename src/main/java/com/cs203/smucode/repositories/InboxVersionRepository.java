@@ -0,0 +1,9 @@
+package com.cs203.smucode.repositories;
+
+import com.cs203.smucode.models.UserInboxVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface InboxVersionRepository extends JpaRepository<UserInboxVersion, String>, InboxVersionUpdates {
+}
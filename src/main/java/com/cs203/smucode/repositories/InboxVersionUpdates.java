@@ -0,0 +1,24 @@
+package com.cs203.smucode.repositories;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Writes to {@code inbox_versions} that Spring Data cannot derive: an increment that also
+ * creates the row on a user's first notification.
+ */
+public interface InboxVersionUpdates {
+
+    /**
+     * Channel {@link #bump} notifies on Postgres, one payload per batch of usernames
+     * separated by {@link #SEPARATOR}
+     */
+    String CHANNEL = "inbox_versions";
+    char SEPARATOR = '\n';
+
+    /**
+     * Increments the version of each user's inbox, creating it at 1, and stamps it with
+     * {@code changedAt}. Must run in the transaction of the write it records.
+     */
+    void bump(Collection<String> usernames, LocalDateTime changedAt);
+}
@@ -0,0 +1,104 @@
+package com.cs203.smucode.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.hibernate.Session;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/**
+ * Bumps every version with one batched upsert. On Postgres that is
+ * {@code INSERT ... ON CONFLICT DO UPDATE}, which cannot fail when two transactions create
+ * the same user's row at once, followed by a {@code pg_notify} on
+ * {@value InboxVersionUpdates#CHANNEL} that Postgres delivers to every listening instance
+ * when, and only if, the transaction commits. Elsewhere, ie. H2 in tests, a standard
+ * {@code MERGE} without the notification.
+ *
+ * <p>Usernames are written in sorted order, so two transactions bumping overlapping sets
+ * of users lock their rows in the same order and cannot deadlock.
+ * </p>
+ */
+class InboxVersionUpdatesImpl implements InboxVersionUpdates {
+
+    private static final String POSTGRES_BUMP = "INSERT INTO inbox_versions (username, version, changed_at)"
+            + " VALUES (?, 1, ?) ON CONFLICT (username)"
+            + " DO UPDATE SET version = inbox_versions.version + 1, changed_at = EXCLUDED.changed_at";
+    private static final String FALLBACK_BUMP = "MERGE INTO inbox_versions v"
+            + " USING (VALUES (CAST(? AS VARCHAR(128)), CAST(? AS TIMESTAMP))) s (username, changed_at)"
+            + " ON v.username = s.username"
+            + " WHEN MATCHED THEN UPDATE SET version = v.version + 1, changed_at = s.changed_at"
+            + " WHEN NOT MATCHED THEN INSERT (username, version, changed_at) VALUES (s.username, 1, s.changed_at)";
+    private static final String NOTIFY = "SELECT pg_notify('" + CHANNEL + "', ?)";
+    // Postgres rejects payloads of 8000 bytes or more
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Boolean postgres;
+
+    @Override
+    public void bump(Collection<String> usernames, LocalDateTime changedAt) {
+        List<String> sorted = usernames.stream().distinct().sorted().toList();
+        if (sorted.isEmpty()) {
+            return;
+        }
+        boolean notify = isPostgres();
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement bump = connection.prepareStatement(notify ? POSTGRES_BUMP : FALLBACK_BUMP)) {
+                Timestamp timestamp = Timestamp.valueOf(changedAt);
+                for (String username : sorted) {
+                    bump.setString(1, username);
+                    bump.setTimestamp(2, timestamp);
+                    bump.addBatch();
+                }
+                bump.executeBatch();
+            }
+            if (notify) {
+                notifyListeners(connection, sorted);
+            }
+        });
+    }
+
+    private static void notifyListeners(Connection connection, List<String> usernames) throws SQLException {
+        try (PreparedStatement notify = connection.prepareStatement(NOTIFY)) {
+            StringBuilder payload = new StringBuilder();
+            int bytes = 0;
+            for (String username : usernames) {
+                int length = username.getBytes(StandardCharsets.UTF_8).length + 1;
+                if (bytes + length > MAX_PAYLOAD_BYTES) {
+                    send(notify, payload);
+                    payload.setLength(0);
+                    bytes = 0;
+                }
+                if (!payload.isEmpty()) {
+                    payload.append(SEPARATOR);
+                }
+                payload.append(username);
+                bytes += length;
+            }
+            send(notify, payload);
+        }
+    }
+
+    private static void send(PreparedStatement notify, CharSequence payload) throws SQLException {
+        notify.setString(1, payload.toString());
+        notify.executeQuery().close();
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+        }
+        return postgres;
+    }
+}
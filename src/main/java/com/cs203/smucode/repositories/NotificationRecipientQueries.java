@@ -0,0 +1,33 @@
+package com.cs203.smucode.repositories;
+
+import com.cs203.smucode.models.Notification;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Inbox queries that filter on recipient, written against whichever recipient storage
+ * the {@link Notification} mapping uses: the {@code notification_recipients} join table
+ * by default, or the {@code text[]} column mapped by {@code META-INF/recipients-array.orm.xml}
+ * under the {@code recipients-array} profile.
+ */
+public interface NotificationRecipientQueries {
+
+    List<Notification> findByUsername(String username);
+
+    List<Notification> findByUsernameAndIsRead(String username, boolean isRead);
+
+    /**
+     * Same rows as {@link #findByUsername(String)}, but read through a forward-only
+     * cursor so callers can process them one at a time. Must be consumed inside a
+     * transaction and closed afterwards.
+     */
+    Stream<Notification> streamByUsername(String username);
+
+    List<Notification> findChangesSince(String username, LocalDateTime since);
+
+    /**
+     * The oldest {@code limit} rows of {@link #findChangesSince(String, LocalDateTime)}
+     */
+    List<Notification> findChangesSince(String username, LocalDateTime since, int limit);
+}
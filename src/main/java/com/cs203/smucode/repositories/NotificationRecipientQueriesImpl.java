@@ -0,0 +1,87 @@
+package com.cs203.smucode.repositories;
+
+import com.cs203.smucode.models.Notification;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+
+/**
+ * Picks the query form from the mapping rather than from a separate setting, so the two
+ * cannot disagree: {@code MEMBER OF} when recipients are an element collection, array
+ * containment ({@code @>}) when they are a Postgres array, which the GIN index on
+ * {@code notifications.recipients} can answer.
+ */
+class NotificationRecipientQueriesImpl implements NotificationRecipientQueries {
+
+    // Scheduled notifications stay invisible until they are released
+    private static final String MEMBER_OF =
+            "SELECT n FROM Notification n WHERE :username MEMBER OF n.recipients AND n.pending = false";
+    private static final String CONTAINS =
+            "SELECT n.* FROM notifications n WHERE n.recipients @> ARRAY[CAST(:username AS text)] AND NOT n.pending";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Boolean arrayStorage;
+
+    @Override
+    public List<Notification> findByUsername(String username) {
+        return query("", username).getResultList();
+    }
+
+    @Override
+    public List<Notification> findByUsernameAndIsRead(String username, boolean isRead) {
+        String condition = isArrayStorage() ? " AND n.is_read = :isRead" : " AND n.isRead = :isRead";
+        return query(condition, username)
+                .setParameter("isRead", isRead)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<Notification> streamByUsername(String username) {
+        return query("", username)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, 100)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    @Override
+    public List<Notification> findChangesSince(String username, LocalDateTime since) {
+        return changesSince(username, since).getResultList();
+    }
+
+    @Override
+    public List<Notification> findChangesSince(String username, LocalDateTime since, int limit) {
+        return changesSince(username, since)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private TypedQuery<Notification> changesSince(String username, LocalDateTime since) {
+        String condition = isArrayStorage()
+                ? " AND n.updated_at > :since ORDER BY n.updated_at"
+                : " AND n.updatedAt > :since ORDER BY n.updatedAt";
+        return query(condition, username)
+                .setParameter("since", since);
+    }
+
+    @SuppressWarnings("unchecked")
+    private TypedQuery<Notification> query(String condition, String username) {
+        TypedQuery<Notification> query = isArrayStorage()
+                ? (TypedQuery<Notification>) entityManager.createNativeQuery(CONTAINS + condition, Notification.class)
+                : entityManager.createQuery(MEMBER_OF + condition, Notification.class);
+        return query.setParameter("username", username);
+    }
+
+    private boolean isArrayStorage() {
+        if (arrayStorage == null) {
+            arrayStorage = !entityManager.getMetamodel().entity(Notification.class)
+                    .getAttribute("recipients").isCollection();
+        }
+        return arrayStorage;
+    }
+}
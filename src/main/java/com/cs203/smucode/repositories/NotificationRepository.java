@@ -1,22 +1,47 @@
 package com.cs203.smucode.repositories;
 
 import com.cs203.smucode.models.Notification;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface NotificationRepository
-    extends JpaRepository<Notification, UUID> {
-    @Query(
-        "SELECT n FROM Notification n WHERE :username MEMBER OF n.recipients"
-    )
-    List<Notification> findByUsername(String username);
-
-    @Query(
-        "SELECT n FROM Notification n WHERE :username MEMBER OF n.recipients AND n.isRead = :isRead"
-    )
-    List<Notification> findByUsernameAndIsRead(String username, boolean isRead);
+    extends JpaRepository<Notification, UUID>, JpaSpecificationExecutor<Notification>, NotificationRecipientQueries {
+
+    Optional<Notification> findByPublisherAndIdempotencyKey(String publisher, String idempotencyKey);
+
+    /**
+     * Every scheduled notification not yet delivered, read once at startup
+     */
+    @Query("SELECT n.id AS id, n.deliverAt AS deliverAt FROM Notification n WHERE n.pending = true")
+    List<PendingDelivery> findPendingDeliveries();
+
+    /**
+     * Locks those of {@code ids} still pending. Rows another replica is releasing at the
+     * same moment are skipped ({@code lock.timeout} -2 is {@code SKIP LOCKED}), so each
+     * notification is claimed exactly once.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT n FROM Notification n WHERE n.id IN :ids AND n.pending = true")
+    List<Notification> lockPending(@Param("ids") Collection<UUID> ids);
+
+    interface PendingDelivery {
+
+        UUID getId();
+
+        LocalDateTime getDeliverAt();
+    }
 }
@@ -0,0 +1,54 @@
+package com.cs203.smucode.repositories;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers the functions {@link NotificationSpecifications} needs beyond standard JPQL.
+ *
+ * <p>{@value #RECIPIENTS_CONTAIN}{@code (recipients, username)} is array containment for the
+ * {@code recipients-array} mapping, written exactly as {@link NotificationRecipientQueriesImpl}
+ * writes it. Hibernate's own {@code array_contains} binds the username as {@code varchar[]},
+ * which Postgres will not compare with the {@code text[]} column.
+ * </p>
+ *
+ * <p>{@value #TEXT_MATCHES}{@code (message, tournamentName, word)} is true when {@code word}
+ * is a prefix of a word in either column. On Postgres it is a full-text match against the same expression as the
+ * {@code idx_notifications_text} GIN index in {@code META-INF/search-indexes.sql}, so the
+ * two must be changed together. Elsewhere, ie. H2 in tests, a regular expression gives the
+ * same prefix-of-a-word semantics, unindexed but good enough for small data sets. Words only
+ * ever hold letters and digits, see {@link NotificationSpecifications#words}, so they are
+ * safe to splice into the expression.
+ * </p>
+ */
+public class NotificationSearchFunctions implements FunctionContributor {
+
+    public static final String RECIPIENTS_CONTAIN = "notification_recipients_contain";
+    public static final String TEXT_MATCHES = "notification_text_matches";
+
+    private static final String POSTGRES_CONTAIN = "(?1 @> ARRAY[CAST(?2 AS text)])";
+    private static final String FALLBACK_CONTAIN = "array_contains(?1, ?2)";
+    private static final String POSTGRES_TEXT =
+            "(to_tsvector('simple', ?1 || ' ' || ?2) @@ to_tsquery('simple', ?3 || ':*'))";
+    private static final String FALLBACK_TEXT =
+            "regexp_like(lower(?1 || ' ' || ?2), '(^|[^\\p{L}\\p{N}])' || ?3)";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        boolean postgres = functionContributions.getDialect() instanceof PostgreSQLDialect;
+        register(functionContributions, RECIPIENTS_CONTAIN, postgres ? POSTGRES_CONTAIN : FALLBACK_CONTAIN, 2);
+        register(functionContributions, TEXT_MATCHES, postgres ? POSTGRES_TEXT : FALLBACK_TEXT, 3);
+    }
+
+    private static void register(FunctionContributions functionContributions, String name, String pattern,
+                                 int arguments) {
+        functionContributions.getFunctionRegistry()
+                .patternDescriptorBuilder(name, pattern)
+                .setExactArgumentCount(arguments)
+                .setInvariantType(functionContributions.getTypeConfiguration()
+                        .getBasicTypeRegistry().resolve(StandardBasicTypes.BOOLEAN))
+                .register();
+    }
+}
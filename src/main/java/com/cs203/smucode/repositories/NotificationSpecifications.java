@@ -0,0 +1,113 @@
+package com.cs203.smucode.repositories;
+
+import com.cs203.smucode.constants.NotificationCategory;
+import com.cs203.smucode.constants.NotificationType;
+import com.cs203.smucode.models.Notification;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Inbox filters as composable {@link Specification}s. Every factory returns {@code null}
+ * for a missing value, which {@link Specification#and(Specification)} ignores.
+ */
+public final class NotificationSpecifications {
+
+    private static final int MAX_SEARCH_WORDS = 8;
+
+    private NotificationSpecifications() {
+    }
+
+    /**
+     * Notifications addressed to {@code username}.
+     *
+     * <p>With the join table this is an uncorrelated {@code id IN (...)} over the recipient
+     * index rather than the correlated subquery {@code MEMBER OF} produces, so Postgres can
+     * start from the user's rows, or from the tournament or text index when that is more
+     * selective. The type, category and read filters are checked on those rows. With the
+     * {@code recipients-array} mapping it is array containment, answered by the GIN index.
+     * </p>
+     */
+    public static Specification<Notification> addressedTo(String username) {
+        return (root, query, cb) -> {
+            if (!root.getModel().getAttribute("recipients").isCollection()) {
+                return cb.isTrue(cb.function(NotificationSearchFunctions.RECIPIENTS_CONTAIN, Boolean.class,
+                        root.get("recipients"), ((HibernateCriteriaBuilder) cb).value(username)));
+            }
+            Subquery<UUID> ids = query.subquery(UUID.class);
+            Root<Notification> addressed = ids.from(Notification.class);
+            Join<Notification, String> recipient = addressed.join("recipients");
+            ids.select(addressed.get("id")).where(cb.equal(recipient, username));
+            return root.get("id").in(ids);
+        };
+    }
+
+    /**
+     * Notifications already delivered, leaving out those still scheduled
+     */
+    public static Specification<Notification> released() {
+        return (root, query, cb) -> cb.isFalse(root.get("pending"));
+    }
+
+    public static Specification<Notification> inTournament(UUID tournamentId) {
+        return tournamentId == null ? null : (root, query, cb) -> cb.equal(root.get("tournamentId"), tournamentId);
+    }
+
+    public static Specification<Notification> ofType(NotificationType type) {
+        return type == null ? null : (root, query, cb) -> cb.equal(root.get("type"), type);
+    }
+
+    public static Specification<Notification> inCategory(NotificationCategory category) {
+        return category == null ? null : (root, query, cb) -> cb.equal(root.get("category"), category);
+    }
+
+    public static Specification<Notification> isRead(Boolean read) {
+        return read == null ? null : (root, query, cb) -> cb.equal(root.get("isRead"), read);
+    }
+
+    public static Specification<Notification> createdFrom(LocalDateTime from) {
+        return from == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("createdAt"), from);
+    }
+
+    public static Specification<Notification> createdBefore(LocalDateTime to) {
+        return to == null ? null : (root, query, cb) -> cb.lessThan(root.get("createdAt"), to);
+    }
+
+    /**
+     * Every word of {@code text} must start a word of the message or tournament name, eg.
+     * {@code "rou open"} matches "Round 2 of SMU Code Open has started". Anything other than
+     * letters and digits is treated as a separator. For templated notifications only the
+     * parameter values are searched, not the template text.
+     *
+     * @see NotificationSearchFunctions
+     */
+    public static Specification<Notification> matchesText(String text) {
+        List<String> words = words(text);
+        if (words.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.and(words.stream()
+                // value() binds the word as a parameter, literal() would inline it into the SQL
+                .map(word -> cb.isTrue(cb.function(NotificationSearchFunctions.TEXT_MATCHES, Boolean.class,
+                        cb.coalesce(root.get("message"), root.get("templateParams")), root.get("tournamentName"),
+                        ((HibernateCriteriaBuilder) cb).value(word))))
+                .toArray(Predicate[]::new));
+    }
+
+    static List<String> words(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        return Arrays.stream(text.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .limit(MAX_SEARCH_WORDS)
+                .toList();
+    }
+}
@@ -0,0 +1,17 @@
+package com.cs203.smucode.services;
+
+import com.cs203.smucode.dto.InboxVersion;
+
+import java.util.Collection;
+
+public interface IInboxVersionService {
+
+    InboxVersion getVersion(String username);
+
+    void bump(Collection<String> usernames);
+
+    void invalidate(Collection<String> usernames);
+
+    void invalidateAll();
+
+}
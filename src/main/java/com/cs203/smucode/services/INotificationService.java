@@ -1,27 +1,50 @@
 package com.cs203.smucode.services;
 
+import com.cs203.smucode.constants.WireFormat;
+import com.cs203.smucode.handlers.SubscriptionFilter;
 import com.cs203.smucode.models.Notification;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 
 public interface INotificationService {
 
     Notification createNotification(Notification notification);
 
+    Optional<Notification> findByIdempotencyKey(String publisher, String idempotencyKey);
+
+    Map<UUID, LocalDateTime> getPendingDeliveries();
+
+    List<Notification> releaseDue(Collection<UUID> ids);
+
     List<Notification> getNotificationsByUsername(String username);
 
+    void streamNotificationsByUsername(String username, Consumer<Notification> consumer);
+
+    void streamNotifications(Specification<Notification> specification, Consumer<Notification> consumer);
+
     List<Notification> getUnreadNotificationsByUsername(String username);
 
+    List<Notification> getChangesSince(String username, LocalDateTime since);
+
+    List<Notification> getChangesSince(String username, LocalDateTime since, int limit);
+
     Notification markAsRead(UUID id);
 
     Notification markAsUnread(UUID id);
 
     SseEmitter subscribe(String username);
 
+    SseEmitter subscribe(String username, WireFormat format, SubscriptionFilter filter);
+
     Map<String, SseEmitter> getEmitters();
 
 }
\ No newline at end of file
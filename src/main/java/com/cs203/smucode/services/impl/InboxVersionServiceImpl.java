@@ -0,0 +1,106 @@
+package com.cs203.smucode.services.impl;
+
+import com.cs203.smucode.datasource.ReplicaRouting;
+import com.cs203.smucode.dto.InboxVersion;
+import com.cs203.smucode.handlers.InboxVersionListener;
+import com.cs203.smucode.repositories.InboxVersionRepository;
+import com.cs203.smucode.services.IInboxVersionService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps each user's inbox version in the {@code inbox_versions} table and serves it from memory.
+ *
+ * <p>Writers call {@link #bump} inside their own transaction, so the version changes
+ * exactly when the write becomes visible. Reads come from a Caffeine cache, so a poll whose
+ * version is cached touches no database at all. A miss reads the user's row by key from
+ * the primary; a replica's copy could predate a bump whose invalidation has already
+ * arrived, and would then stay cached.
+ * </p>
+ *
+ * <p>Entries are dropped after a bump commits: on this instance straight away, on the
+ * others when Postgres delivers the bump's notification to their
+ * {@link InboxVersionListener}. {@code notifications.inbox.version-ttl-millis} bounds how
+ * long an entry can outlive a notification that was missed, eg. while the listener
+ * reconnects.
+ * </p>
+ */
+@Service
+public class InboxVersionServiceImpl implements IInboxVersionService {
+
+    public static final String CACHE_NAME = "inbox.versions";
+
+    private final InboxVersionRepository inboxVersionRepository;
+    private final Cache<String, InboxVersion> versions;
+
+    @Autowired
+    public InboxVersionServiceImpl(InboxVersionRepository inboxVersionRepository,
+                                   @Value("${notifications.inbox.version-cache-size:100000}") long cacheSize,
+                                   @Value("${notifications.inbox.version-ttl-millis:60000}") long ttlMillis,
+                                   MeterRegistry registry) {
+        this.inboxVersionRepository = inboxVersionRepository;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, versions, CACHE_NAME);
+    }
+
+    @Override
+    public InboxVersion getVersion(String username) {
+        return versions.get(username, this::load);
+    }
+
+    private InboxVersion load(String username) {
+        return ReplicaRouting.onPrimary(() -> inboxVersionRepository.findById(username))
+                .map(row -> new InboxVersion(row.getVersion(), row.getChangedAt()))
+                .orElse(InboxVersion.EMPTY);
+    }
+
+    /**
+     * Bumps the inbox version of every user in {@code usernames}, as part of the caller's
+     * transaction
+     *
+     * @param usernames recipients of the notifications the transaction writes
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bump(Collection<String> usernames) {
+        if (usernames == null || usernames.isEmpty()) {
+            return;
+        }
+        inboxVersionRepository.bump(usernames, LocalDateTime.now());
+        List<String> bumped = List.copyOf(usernames);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(bumped);
+            }
+        });
+    }
+
+    @Override
+    public void invalidate(Collection<String> usernames) {
+        versions.invalidateAll(usernames);
+    }
+
+    @Override
+    public void invalidateAll() {
+        versions.invalidateAll();
+    }
+}
@@ -1,21 +1,41 @@
 package com.cs203.smucode.services.impl;
 
+import com.cs203.smucode.constants.WireFormat;
+import com.cs203.smucode.datasource.ReplicaRouting;
+import com.cs203.smucode.exception.DuplicateNotificationException;
+import com.cs203.smucode.handlers.SubscriberEmitter;
+import com.cs203.smucode.handlers.SubscriptionFilter;
 import com.cs203.smucode.models.Notification;
 import com.cs203.smucode.repositories.NotificationRepository;
+import com.cs203.smucode.services.IInboxVersionService;
 import com.cs203.smucode.services.INotificationService;
+import com.cs203.smucode.utils.RotatingBloomFilter;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceContext;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Service
@@ -25,54 +45,259 @@ public class NotificationServiceImpl implements INotificationService {
     @Getter
     private final Map<String, SseEmitter> emitters = new ConcurrentHashMap<>();
     private final NotificationRepository notificationRepository;
+    private final IInboxVersionService inboxVersionService;
+    private final TransactionTemplate transactionTemplate;
+    private final RotatingBloomFilter idempotencyKeys;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
-    public NotificationServiceImpl(NotificationRepository notificationRepository) {
+    public NotificationServiceImpl(NotificationRepository notificationRepository,
+                                   IInboxVersionService inboxVersionService,
+                                   TransactionTemplate transactionTemplate,
+                                   RotatingBloomFilter idempotencyKeys) {
         this.notificationRepository = notificationRepository;
+        this.inboxVersionService = inboxVersionService;
+        this.transactionTemplate = transactionTemplate;
+        this.idempotencyKeys = idempotencyKeys;
     }
 
+    /**
+     * Persists a new notification.
+     *
+     * <p>If the notification carries an idempotency key that its publisher already used,
+     * nothing is saved and a {@link DuplicateNotificationException} holding the original
+     * is thrown instead. Keys are scoped to the publisher, so two services may use the
+     * same key. Recently seen keys are caught by the Bloom filter lookup, older ones and
+     * those seen by another replica by the unique index.
+     * </p>
+     *
+     * <p>A notification with a {@code deliverAt} in the future is saved as pending and
+     * dated at that time. It stays out of every inbox until {@link #releaseDue} is called
+     * for it. Otherwise the recipients' inbox versions are bumped in the same transaction
+     * as the insert.
+     * </p>
+     *
+     * @param notification notification to create
+     * @return the saved notification
+     * @throws DuplicateNotificationException if the idempotency key was already used
+     */
     @Override
     public Notification createNotification(Notification notification) {
+        String publisher = notification.getPublisher();
+        String idempotencyKey = notification.getIdempotencyKey();
+        if (idempotencyKey != null) {
+            // Called on this, not the proxy, so pin the lookup to the primary by hand
+            ReplicaRouting.onPrimary(() -> findByIdempotencyKey(publisher, idempotencyKey)).ifPresent(existing -> {
+                throw new DuplicateNotificationException(existing);
+            });
+        }
+
         // TODO: move default values to DB
-        notification.setCreatedAt(LocalDateTime.now());
+        LocalDateTime now = LocalDateTime.now();
+        boolean scheduled = notification.getDeliverAt() != null && notification.getDeliverAt().isAfter(now);
+        notification.setCreatedAt(scheduled ? notification.getDeliverAt() : now);
+        notification.setPending(scheduled);
         notification.setIsRead(false);
-        return notificationRepository.save(notification);
+        Notification saved;
+        try {
+            // Flushed inside, so a duplicate key surfaces here and not at commit
+            saved = transactionTemplate.execute(status -> {
+                Notification row = notificationRepository.saveAndFlush(notification);
+                if (!scheduled) {
+                    inboxVersionService.bump(row.getRecipients());
+                }
+                return row;
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (idempotencyKey == null) {
+                throw e;
+            }
+            // The winning insert may not have reached a replica yet
+            throw ReplicaRouting.onPrimary(() -> notificationRepository.findByPublisherAndIdempotencyKey(publisher, idempotencyKey))
+                    .map(DuplicateNotificationException::new)
+                    .orElseThrow(() -> e);
+        }
+        if (idempotencyKey != null) {
+            idempotencyKeys.put(scopedKey(publisher, idempotencyKey));
+        }
+        return saved;
+    }
+
+    /**
+     * Marks the given scheduled notifications as delivered.
+     *
+     * <p>Only those still pending and not being released by another replica at the same
+     * moment are returned, so the caller can fan out exactly what it claimed. Releasing
+     * bumps {@code updatedAt}, which puts the notifications in the next delta sync and
+     * changes the recipients' inbox versions.
+     * </p>
+     *
+     * @param ids scheduled notifications that are due
+     * @return the notifications released by this call
+     */
+    @Override
+    @Transactional
+    public List<Notification> releaseDue(Collection<UUID> ids) {
+        List<Notification> released = notificationRepository.lockPending(ids);
+        released.forEach(notification -> notification.setPending(false));
+        inboxVersionService.bump(released.stream()
+                .flatMap(notification -> notification.getRecipients().stream())
+                .collect(Collectors.toSet()));
+        return released;
     }
 
+    /**
+     * Looks up a notification by its idempotency key, skipping the database when the
+     * Bloom filter has not seen the key recently
+     *
+     * @param publisher JWT subject of the publisher
+     * @param idempotencyKey publisher-supplied dedup key
+     * @return the notification this publisher created with this key, if any
+     */
     @Override
+    @Transactional
+    public Optional<Notification> findByIdempotencyKey(String publisher, String idempotencyKey) {
+        if (!idempotencyKeys.mightContain(scopedKey(publisher, idempotencyKey))) {
+            return Optional.empty();
+        }
+        return notificationRepository.findByPublisherAndIdempotencyKey(publisher, idempotencyKey);
+    }
+
+    /**
+     * Bloom filter entry for a publisher's key, NUL cannot occur in a JWT subject
+     */
+    private static String scopedKey(String publisher, String idempotencyKey) {
+        return publisher + '\u0000' + idempotencyKey;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<UUID, LocalDateTime> getPendingDeliveries() {
+        Map<UUID, LocalDateTime> pending = new LinkedHashMap<>();
+        notificationRepository.findPendingDeliveries()
+                .forEach(delivery -> pending.put(delivery.getId(), delivery.getDeliverAt()));
+        return pending;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<Notification> getNotificationsByUsername(String username) {
         return notificationRepository.findByUsername(username);
     }
 
+    /**
+     * Hands the user's notifications to {@code consumer} one row at a time.
+     *
+     * <p>Each row is detached once consumed, so the persistence context (and heap)
+     * stays flat regardless of how large the inbox is.
+     * </p>
+     *
+     * @param username recipient whose notifications are streamed
+     * @param consumer callback invoked for every notification
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamNotificationsByUsername(String username, Consumer<Notification> consumer) {
+        try (Stream<Notification> notifications = notificationRepository.streamByUsername(username)) {
+            notifications.forEach(notification -> {
+                consumer.accept(notification);
+                entityManager.detach(notification);
+            });
+        }
+    }
+
+    /**
+     * Hands the notifications matching {@code specification} to {@code consumer}, newest first
+     *
+     * <p>Rows are detached as they are consumed, as in {@link #streamNotificationsByUsername}.
+     * </p>
+     *
+     * @param specification filters to apply, see {@link com.cs203.smucode.repositories.NotificationSpecifications}
+     * @param consumer callback invoked for every notification
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamNotifications(Specification<Notification> specification, Consumer<Notification> consumer) {
+        try (Stream<Notification> notifications = notificationRepository.findBy(specification,
+                query -> query.sortBy(Sort.by(Sort.Direction.DESC, "createdAt")).stream())) {
+            notifications.forEach(notification -> {
+                consumer.accept(notification);
+                entityManager.detach(notification);
+            });
+        }
+    }
+
     @Override
+    @Transactional(readOnly = true)
     public List<Notification> getUnreadNotificationsByUsername(String username) {
         return notificationRepository.findByUsernameAndIsRead(username, false);
     }
 
+    /**
+     * Notifications addressed to the user that were created or changed read state after {@code since}
+     *
+     * @param username recipient to sync
+     * @param since client's last watermark, exclusive
+     * @return changed notifications, oldest change first
+     */
+    @Override
+    @Transactional // read-write so it stays on the primary, watermarks must not go backwards
+    public List<Notification> getChangesSince(String username, LocalDateTime since) {
+        return notificationRepository.findChangesSince(username, since);
+    }
+
+    /**
+     * The first {@code limit} of {@link #getChangesSince(String, LocalDateTime)}
+     *
+     * @param username recipient to sync
+     * @param since client's last watermark, exclusive
+     * @param limit maximum number of changes returned
+     * @return changed notifications, oldest change first
+     */
     @Override
+    @Transactional // read-write so it stays on the primary, as above
+    public List<Notification> getChangesSince(String username, LocalDateTime since, int limit) {
+        return notificationRepository.findChangesSince(username, since, limit);
+    }
+
+    @Override
+    @Transactional
     public Notification markAsRead(UUID id) {
         Notification notification = notificationRepository.findById(id).
                 orElseThrow(EntityNotFoundException::new);
         notification.setIsRead(true);
-        logger.info("notification marked as read: {}", notification);
+        logger.debug("notification marked as read: {}", id);
+        inboxVersionService.bump(notification.getRecipients());
         return notificationRepository.save(notification);
     }
 
     @Override
+    @Transactional
     public Notification markAsUnread(UUID id) {
         Notification notification = notificationRepository.findById(id).
                 orElseThrow(EntityNotFoundException::new);
         notification.setIsRead(false);
+        inboxVersionService.bump(notification.getRecipients());
         return notificationRepository.save(notification);
     }
 
+    @Override
+    public SseEmitter subscribe(String username) {
+        return subscribe(username, WireFormat.JSON, SubscriptionFilter.ALL);
+    }
+
     /**
      * Method to handle client subscribing to notification service
      *
      * @param username new subscriber
+     * @param format encoding of the events sent to this subscriber
+     * @param filter categories and types streamed to this subscriber
      */
-    public SseEmitter subscribe(String username) {
-        SseEmitter emitter = new SseEmitter(Long.MAX_VALUE); // Keep connection open indefinitely
+    @Override
+    public SseEmitter subscribe(String username, WireFormat format, SubscriptionFilter filter) {
+        SseEmitter emitter = new SubscriberEmitter(Long.MAX_VALUE, format, filter); // Keep connection open indefinitely
         emitters.put(username, emitter); // Include new client into map of emitters
 
         // Graceful shutdown
@@ -0,0 +1,214 @@
+package com.cs203.smucode.templates;
+
+import com.cs203.smucode.exception.ApiRequestException;
+import com.cs203.smucode.models.Notification;
+import org.mapstruct.Named;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of message templates, and the renderer for notifications stored against one.
+ *
+ * <p>A publisher can send a {@code templateId} with parameters instead of a rendered
+ * message. The row then keeps only the id and the parameter values, in the order the
+ * placeholders first appear in the default locale's text, joined by a unit separator:
+ * no keys, and none of the text every row would otherwise repeat. {@value #TOURNAMENT}
+ * is always the notification's tournament name, so it is not stored twice.
+ * </p>
+ *
+ * <p>Messages are rendered when a notification is mapped for output, in the locale of
+ * the current request if a template has it, else in the default locale. Live events are
+ * rendered once for all recipients, in the default locale, through {@link #renderDefault}
+ * so the publisher's own locale does not leak into them. Each template is parsed once
+ * per locale and the parsed form cached.
+ * </p>
+ *
+ * <p>Stored rows depend on the parameter order, so a template's placeholders must not
+ * change once it is in use; add a template with a new id instead. The text around them
+ * can change freely and old rows pick it up.
+ * </p>
+ */
+@Component
+public class NotificationTemplates {
+
+    public static final String TOURNAMENT = "tournament";
+
+    static final char SEPARATOR = '\u001f';
+    // Length of the template_params column
+    static final int MAX_PARAMS_LENGTH = 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationTemplates.class);
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([A-Za-z0-9_-]+)}");
+
+    private final String defaultLocale;
+    private final Map<String, Map<String, String>> registry;
+    private final Map<String, List<String>> parameters = new ConcurrentHashMap<>();
+    private final Map<RendererKey, Renderer> renderers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public NotificationTemplates(TemplateProperties properties) {
+        this.defaultLocale = properties.defaultLocale();
+        this.registry = Map.copyOf(properties.registry());
+        registry.forEach((templateId, texts) -> {
+            String text = texts.get(defaultLocale);
+            if (text == null) {
+                throw new IllegalArgumentException(
+                        "Template " + templateId + " has no text for the default locale " + defaultLocale);
+            }
+            Set<String> names = new LinkedHashSet<>(placeholders(text));
+            names.remove(TOURNAMENT);
+            texts.forEach((locale, localized) -> {
+                if (!names.containsAll(placeholders(localized).stream().filter(name -> !name.equals(TOURNAMENT)).toList())) {
+                    throw new IllegalArgumentException(
+                            "Template " + templateId + " uses placeholders in " + locale + " that " + defaultLocale + " does not");
+                }
+            });
+            parameters.put(templateId, List.copyOf(names));
+        });
+    }
+
+    /**
+     * Stores {@code templateId} and {@code params} on the notification in place of a message
+     *
+     * @throws ApiRequestException if the template is unknown or a parameter is missing
+     */
+    public void bind(Notification notification, String templateId, Map<String, String> params) {
+        List<String> names = parameters.get(templateId);
+        if (names == null) {
+            throw new ApiRequestException("Unknown template " + templateId);
+        }
+        StringBuilder encoded = new StringBuilder();
+        for (int i = 0; i < names.size(); i++) {
+            String value = params == null ? null : params.get(names.get(i));
+            if (value == null) {
+                throw new ApiRequestException("Template " + templateId + " needs parameter " + names.get(i));
+            }
+            if (value.indexOf(SEPARATOR) >= 0) {
+                throw new ApiRequestException("Template parameter " + names.get(i) + " contains a control character");
+            }
+            if (i > 0) {
+                encoded.append(SEPARATOR);
+            }
+            encoded.append(value);
+        }
+        if (encoded.length() > MAX_PARAMS_LENGTH) {
+            throw new ApiRequestException("Template parameters for " + templateId + " are longer than "
+                    + MAX_PARAMS_LENGTH + " characters");
+        }
+        notification.setTemplateId(templateId);
+        notification.setTemplateParams(encoded.toString());
+        notification.setMessage(null);
+    }
+
+    /**
+     * @return the stored message, or the template rendered for the current locale
+     */
+    @Named("renderMessage")
+    public String render(Notification notification) {
+        if (notification.getTemplateId() == null) {
+            return notification.getMessage();
+        }
+        LocaleContext context = LocaleContextHolder.getLocaleContext();
+        Locale locale = context == null ? null : context.getLocale();
+        return render(notification, locale);
+    }
+
+    /**
+     * @return the stored message, or the template rendered for the default locale,
+     * whatever locale the current request is in
+     */
+    @Named("renderDefaultMessage")
+    public String renderDefault(Notification notification) {
+        if (notification.getTemplateId() == null) {
+            return notification.getMessage();
+        }
+        return render(notification, Locale.forLanguageTag(defaultLocale));
+    }
+
+    String render(Notification notification, Locale locale) {
+        String templateId = notification.getTemplateId();
+        Map<String, String> texts = registry.get(templateId);
+        String params = notification.getTemplateParams() == null ? "" : notification.getTemplateParams();
+        if (texts == null) {
+            // Removed from the registry while rows still use it
+            logger.warn("Unknown template {}, rendering its parameters only", templateId);
+            return params.replace(SEPARATOR, ' ');
+        }
+        String resolved = resolve(texts, locale);
+        Renderer renderer = renderers.computeIfAbsent(new RendererKey(templateId, resolved),
+                key -> Renderer.parse(texts.get(key.locale()), parameters.get(templateId)));
+        return renderer.render(params.isEmpty() ? new String[0] : params.split(String.valueOf(SEPARATOR), -1),
+                notification.getTournamentName());
+    }
+
+    private String resolve(Map<String, String> texts, Locale locale) {
+        if (locale != null) {
+            String tag = locale.toLanguageTag();
+            if (texts.containsKey(tag)) {
+                return tag;
+            }
+            if (texts.containsKey(locale.getLanguage())) {
+                return locale.getLanguage();
+            }
+        }
+        return defaultLocale;
+    }
+
+    private static List<String> placeholders(String text) {
+        List<String> names = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(text);
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names;
+    }
+
+    private record RendererKey(String templateId, String locale) {
+    }
+
+    /**
+     * A template split into literal text and parameter positions, -1 for the tournament name
+     */
+    private record Renderer(String[] literals, int[] positions, int length) {
+
+        static Renderer parse(String text, List<String> names) {
+            List<String> literals = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            Matcher matcher = PLACEHOLDER.matcher(text);
+            int from = 0;
+            while (matcher.find()) {
+                literals.add(text.substring(from, matcher.start()));
+                String name = matcher.group(1);
+                positions.add(name.equals(TOURNAMENT) ? -1 : names.indexOf(name));
+                from = matcher.end();
+            }
+            literals.add(text.substring(from));
+            return new Renderer(literals.toArray(String[]::new),
+                    positions.stream().mapToInt(Integer::intValue).toArray(), text.length());
+        }
+
+        String render(String[] values, String tournamentName) {
+            StringBuilder message = new StringBuilder(length + 32);
+            for (int i = 0; i < positions.length; i++) {
+                message.append(literals[i]);
+                int position = positions[i];
+                message.append(position < 0 ? tournamentName : position < values.length ? values[position] : "");
+            }
+            return message.append(literals[positions.length]).toString();
+        }
+    }
+}
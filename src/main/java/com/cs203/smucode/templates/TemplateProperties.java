@@ -0,0 +1,19 @@
+package com.cs203.smucode.templates;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/**
+ * Message templates publishers can refer to, under {@code notifications.templates}
+ *
+ * @param defaultLocale locale every template must be written in, used when no other matches
+ * @param registry message text by template id, then by locale, with {@code {name}} placeholders
+ */
+@ConfigurationProperties(prefix = "notifications.templates")
+public record TemplateProperties(
+    @DefaultValue("en") String defaultLocale,
+    @DefaultValue Map<String, Map<String, String>> registry
+) {
+}
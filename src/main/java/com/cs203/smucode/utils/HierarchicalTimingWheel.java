@@ -0,0 +1,159 @@
+package com.cs203.smucode.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Hierarchical timing wheel holding items until their expiration time.
+ *
+ * <p>The lowest wheel has {@code wheelSize} buckets of one tick each. Items due further
+ * out than the wheel spans go to an overflow wheel whose buckets are as wide as the
+ * whole wheel below, created on demand, so adding and releasing an item costs
+ * {@code O(1)} per level however many items are waiting. When an overflow bucket comes
+ * due its items are added again and fall into a finer wheel, until they are within one
+ * tick of their time.
+ * </p>
+ *
+ * <p>Only buckets with items are kept in a priority queue, ordered by expiration, so
+ * {@link #nextExpiration()} tells the caller how long it can sleep. Times are in
+ * milliseconds of any clock, as long as the caller sticks to one. Not thread-safe.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public final class HierarchicalTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final PriorityQueue<Bucket<T>> due = new PriorityQueue<>(
+            (a, b) -> Long.compare(a.expiration, b.expiration));
+    private final Wheel root;
+    private int size;
+
+    /**
+     * @param tickMillis resolution of the lowest wheel
+     * @param wheelSize  buckets per wheel
+     * @param startMillis current time
+     */
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis < 1 || wheelSize < 2) {
+            throw new IllegalArgumentException("Tick must be at least 1 ms and a wheel at least 2 buckets");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.root = new Wheel(tickMillis, startMillis);
+    }
+
+    /**
+     * Holds {@code item} until {@code expirationMillis}
+     *
+     * @return false if the item is already due, in which case it was not added
+     */
+    public boolean add(T item, long expirationMillis) {
+        // Rounded up to the next tick, so that items are released late by less than a tick but never early
+        if (!root.add(new Entry<>(item, expirationMillis + tickMillis - 1))) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Moves the clock to {@code nowMillis} and removes every item that came due
+     *
+     * @return the due items, in no particular order
+     */
+    public List<T> advance(long nowMillis) {
+        List<T> released = new ArrayList<>();
+        Bucket<T> bucket;
+        while ((bucket = due.peek()) != null && bucket.expiration <= nowMillis) {
+            due.poll();
+            root.advanceClock(bucket.expiration);
+            List<Entry<T>> entries = bucket.entries;
+            bucket.entries = new ArrayList<>();
+            bucket.expiration = -1;
+            for (Entry<T> entry : entries) {
+                if (!root.add(entry)) {
+                    released.add(entry.item);
+                    size--;
+                }
+            }
+        }
+        root.advanceClock(nowMillis);
+        return released;
+    }
+
+    /**
+     * @return time at which the earliest bucket comes due, {@link Long#MAX_VALUE} if empty
+     */
+    public long nextExpiration() {
+        Bucket<T> bucket = due.peek();
+        return bucket == null ? Long.MAX_VALUE : bucket.expiration;
+    }
+
+    /**
+     * @return number of items waiting
+     */
+    public int size() {
+        return size;
+    }
+
+    private final class Wheel {
+
+        private final long tick;
+        private final long interval;
+        private final List<Bucket<T>> buckets;
+        private long currentTime;
+        private Wheel overflow;
+
+        private Wheel(long tick, long startMillis) {
+            this.tick = tick;
+            this.interval = tick * wheelSize;
+            this.currentTime = startMillis - Math.floorMod(startMillis, tick);
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new Bucket<>());
+            }
+        }
+
+        private boolean add(Entry<T> entry) {
+            if (entry.expiration < currentTime + tick) {
+                return false;
+            }
+            if (entry.expiration < currentTime + interval) {
+                long slot = Math.floorDiv(entry.expiration, tick);
+                Bucket<T> bucket = buckets.get((int) Math.floorMod(slot, (long) wheelSize));
+                bucket.entries.add(entry);
+                // A bucket only takes a new expiration once it has been emptied
+                if (bucket.expiration != slot * tick) {
+                    bucket.expiration = slot * tick;
+                    due.add(bucket);
+                }
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Wheel(interval, currentTime);
+            }
+            return overflow.add(entry);
+        }
+
+        private void advanceClock(long timeMillis) {
+            if (timeMillis >= currentTime + tick) {
+                currentTime = timeMillis - Math.floorMod(timeMillis, tick);
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+    }
+
+    private static final class Bucket<T> {
+
+        private List<Entry<T>> entries = new ArrayList<>();
+        private long expiration = -1;
+    }
+
+    private record Entry<T>(T item, long expiration) {
+    }
+}
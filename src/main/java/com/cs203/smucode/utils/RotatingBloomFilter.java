@@ -0,0 +1,117 @@
+package com.cs203.smucode.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Time-windowed Bloom filter for strings.
+ *
+ * <p>Keys are added to the current generation and looked up in the current and the
+ * previous one. Once the current generation is older than the window it becomes the
+ * previous generation and a fresh one is started, so a key is remembered for at
+ * least one and at most two windows while memory stays fixed.
+ * </p>
+ *
+ * <p>{@link #mightContain(String)} never returns false for a key added within the
+ * last window; it returns true for a key never added with roughly the configured
+ * false-positive probability.
+ * </p>
+ */
+public class RotatingBloomFilter {
+
+    private final int bits;
+    private final int hashes;
+    private final long windowNanos;
+
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    /**
+     * @param expectedKeys keys expected per window
+     * @param falsePositiveRate target false-positive probability, eg. 0.01
+     * @param windowNanos how long a generation accepts new keys
+     */
+    public RotatingBloomFilter(int expectedKeys, double falsePositiveRate, long windowNanos) {
+        double ln2 = Math.log(2);
+        this.bits = (int) Math.max(64, Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        this.hashes = (int) Math.max(1, Math.round((double) bits / expectedKeys * ln2));
+        this.windowNanos = windowNanos;
+        long now = System.nanoTime();
+        this.current = new Generation(bits, now);
+        this.previous = new Generation(bits, now);
+    }
+
+    public void put(String key) {
+        long hash = hash(key);
+        rotateIfExpired().set(hash);
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        Generation generation = rotateIfExpired();
+        return generation.contains(hash) || previous.contains(hash);
+    }
+
+    private Generation rotateIfExpired() {
+        Generation generation = current;
+        long now = System.nanoTime();
+        if (now - generation.createdAt < windowNanos) {
+            return generation;
+        }
+        synchronized (this) {
+            if (current == generation) {
+                previous = generation;
+                current = new Generation(bits, now);
+            }
+            return current;
+        }
+    }
+
+    private final class Generation {
+        private final AtomicLongArray words;
+        private final long createdAt;
+
+        private Generation(int bits, long createdAt) {
+            this.words = new AtomicLongArray((bits + 63) >>> 6);
+            this.createdAt = createdAt;
+        }
+
+        private void set(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                long mask = 1L << bit;
+                words.getAndAccumulate(bit >>> 6, mask, (word, m) -> word | m);
+            }
+        }
+
+        private boolean contains(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units, finished with the MurmurHash3 mixer
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS idx_notifications_recipients ON notifications USING gin (recipients);
@@ -0,0 +1,2 @@
+CREATE INDEX IF NOT EXISTS idx_notifications_text ON notifications USING gin (to_tsvector('simple', coalesce(message, template_params) || ' ' || tournament_name));
+CREATE INDEX IF NOT EXISTS idx_notifications_pending ON notifications (deliver_at) WHERE pending;
@@ -0,0 +1,80 @@
+package com.cs203.smucode.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void tryAcquire_AtLimit_ShouldReject() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, TARGET);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void release_FastAndBusy_ShouldGrowLimitByOnePerWindow() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, TARGET);
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+        }
+
+        // Two windows of completions at full concurrency
+        for (int i = 0; i < 20; i++) {
+            limiter.release(TARGET / 10);
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(11);
+    }
+
+    @Test
+    void release_FastAndBusy_ShouldStopAtMaximum() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 5, TARGET);
+        for (int i = 0; i < 4; i++) {
+            limiter.tryAcquire();
+        }
+
+        for (int i = 0; i < 100; i++) {
+            limiter.release(TARGET / 10);
+            limiter.tryAcquire();
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void release_Slow_ShouldShrinkLimitOncePerInterval() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 1, 100, TARGET);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+        }
+        for (int i = 0; i < 10; i++) {
+            limiter.release(TARGET * 2);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo((int) (100 * AdaptiveConcurrencyLimiter.BACKOFF));
+    }
+
+    @Test
+    void release_Slow_ShouldNotGoBelowMinimum() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(3, 2, 10, TimeUnit.MILLISECONDS.toNanos(1));
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(5));
+            Thread.sleep(2);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,85 @@
+package com.cs203.smucode.admission;
+
+import com.cs203.smucode.exception.ApiException;
+import com.cs203.smucode.exception.ApiExceptionHandler;
+import com.cs203.smucode.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IngestAdmissionInterceptorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void preHandle_PublisherOverRate_ShouldRejectWithRetryAfter() {
+        // one request per 10s, no burst beyond the first
+        IngestAdmissionInterceptor interceptor = interceptor(32, 0.1, 1);
+        MockHttpServletRequest request = requestFrom("tournament-service");
+
+        assertThat(interceptor.preHandle(request, new MockHttpServletResponse(), null)).isTrue();
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+
+        assertThatThrownBy(() -> interceptor.preHandle(requestFrom("tournament-service"), new MockHttpServletResponse(), null))
+                .isInstanceOf(RateLimitExceededException.class)
+                .extracting("retryAfterSeconds")
+                .satisfies(seconds -> assertThat((long) seconds).isBetween(9L, 10L));
+        // Other publishers have their own bucket
+        assertThat(interceptor.preHandle(requestFrom("matchmaking-service"), new MockHttpServletResponse(), null)).isTrue();
+    }
+
+    @Test
+    void preHandle_OverConcurrencyLimit_ShouldRejectUntilReleased() {
+        IngestAdmissionInterceptor interceptor = interceptor(1, 1000, 1000);
+        MockHttpServletRequest first = requestFrom("tournament-service");
+
+        interceptor.preHandle(first, new MockHttpServletResponse(), null);
+        assertThatThrownBy(() -> interceptor.preHandle(requestFrom("tournament-service"), new MockHttpServletResponse(), null))
+                .isInstanceOf(RateLimitExceededException.class);
+
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        assertThat(interceptor.getLimiter().getInFlight()).isZero();
+        assertThat(interceptor.preHandle(requestFrom("tournament-service"), new MockHttpServletResponse(), null)).isTrue();
+        assertThat(registry.get(IngestAdmissionInterceptor.REJECTED).tag("reason", "concurrency").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void preHandle_ManyPublishers_ShouldKeepAtMostMaxBuckets() {
+        IngestAdmissionInterceptor interceptor = interceptor(1000, 1000, 1000);
+
+        for (int i = 0; i < 200; i++) {
+            MockHttpServletRequest request = requestFrom("publisher-" + i);
+            interceptor.preHandle(request, new MockHttpServletResponse(), null);
+            interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+        }
+
+        assertThat(interceptor.publisherCount()).isLessThanOrEqualTo(16);
+    }
+
+    @Test
+    void handler_ShouldAnswerTooManyRequestsWithRetryAfter() {
+        ResponseEntity<ApiException> response = new ApiExceptionHandler()
+                .handleRateLimitExceededException(new RateLimitExceededException("Publisher rate limit exceeded", 3));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("3");
+    }
+
+    private IngestAdmissionInterceptor interceptor(int limit, double rate, double burst) {
+        return new IngestAdmissionInterceptor(true, limit, 1, limit, 250, rate, burst, 16, registry);
+    }
+
+    private static MockHttpServletRequest requestFrom(String publisher) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/notifications/stream");
+        request.setUserPrincipal(() -> publisher);
+        return request;
+    }
+}
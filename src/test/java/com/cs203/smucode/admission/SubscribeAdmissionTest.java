@@ -0,0 +1,56 @@
+package com.cs203.smucode.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubscribeAdmissionTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void retryHintMillis_ShouldStayWithinJitterRange() {
+        SubscribeAdmission admission = new SubscribeAdmission(3000, 5000, true, 500, 1000, 30, registry);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(admission.retryHintMillis()).isBetween(3000L, 8000L);
+        }
+    }
+
+    @Test
+    void admit_OverBurst_ShouldQueueClientsOneSlotApart() {
+        // 10 connections per second, so one slot every 100ms
+        SubscribeAdmission admission = new SubscribeAdmission(3000, 5000, true, 10, 2, 30, registry);
+
+        assertThat(admission.admit()).isZero();
+        assertThat(admission.admit()).isZero();
+        long first = admission.admit();
+        long second = admission.admit();
+        long third = admission.admit();
+
+        assertThat(first).isBetween(50L, 100L);
+        assertThat(second - first).isBetween(90L, 110L);
+        assertThat(third - second).isBetween(90L, 110L);
+        assertThat(registry.get(SubscribeAdmission.DEFERRED).counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void admit_QueueDeeperThanWindow_ShouldSpreadWithinWindow() {
+        SubscribeAdmission admission = new SubscribeAdmission(3000, 5000, true, 10, 1, 1, registry);
+        admission.admit();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(admission.admit()).isBetween(1L, 1000L);
+        }
+    }
+
+    @Test
+    void admit_Disabled_ShouldAlwaysAdmit() {
+        SubscribeAdmission admission = new SubscribeAdmission(3000, 5000, false, 1, 1, 30, registry);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(admission.admit()).isZero();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.cs203.smucode.audit;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.cs203.smucode.constants.DeliveryOutcome;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeliveryAuditLogTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Logger auditLogger = (Logger) LoggerFactory.getLogger(DeliveryAuditLog.AUDIT_LOGGER);
+    private final ListAppender<ILoggingEvent> written = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        written.start();
+        auditLogger.addAppender(written);
+    }
+
+    @AfterEach
+    void tearDown() {
+        auditLogger.detachAppender(written);
+    }
+
+    @Test
+    void record_ShouldWriteOneJsonLinePerAttempt() throws InterruptedException {
+        DeliveryAuditLog log = new DeliveryAuditLog(true, 1.0, 64, registry);
+        UUID id = UUID.randomUUID();
+
+        log.record(id, "alice", DeliveryOutcome.DELIVERED, "round_started", "general");
+        log.record(id, "bob", DeliveryOutcome.QUEUED_OFFLINE, "round_started", "general");
+        log.start();
+        log.stop();
+
+        assertThat(written.list).hasSize(2);
+        assertThat(written.list.get(0).getFormattedMessage())
+                .contains(id.toString())
+                .contains("alice")
+                .contains("\"outcome\":\"delivered\"");
+    }
+
+    @Test
+    void record_SampleRate_ShouldKeepThatShareOfSuccesses() throws InterruptedException {
+        DeliveryAuditLog log = new DeliveryAuditLog(true, 0.25, 8192, registry);
+
+        for (int i = 0; i < 4000; i++) {
+            log.record(UUID.randomUUID(), "user" + i, DeliveryOutcome.DELIVERED, "round_started", "general");
+        }
+        log.start();
+        log.stop();
+
+        // 1000 expected, about 27 standard deviation
+        assertThat(written.list.size()).isBetween(850, 1150);
+    }
+
+    @Test
+    void record_SampleRateZero_ShouldStillKeepEveryFailure() throws InterruptedException {
+        DeliveryAuditLog log = new DeliveryAuditLog(true, 0.0, 64, registry);
+
+        for (int i = 0; i < 100; i++) {
+            log.record(UUID.randomUUID(), "user" + i, DeliveryOutcome.DELIVERED, "round_started", "general");
+        }
+        for (int i = 0; i < 10; i++) {
+            log.record(UUID.randomUUID(), "user" + i, DeliveryOutcome.FAILED, "round_started", "general");
+        }
+        log.start();
+        log.stop();
+
+        assertThat(written.list).hasSize(10)
+                .allSatisfy(event -> assertThat(event.getFormattedMessage()).contains("\"outcome\":\"failed\""));
+    }
+
+    @Test
+    void record_BufferFull_ShouldDropAndCount() throws InterruptedException {
+        // Not started, so nothing drains the 64 slots
+        DeliveryAuditLog log = new DeliveryAuditLog(true, 1.0, 64, registry);
+
+        for (int i = 0; i < 100; i++) {
+            log.record(UUID.randomUUID(), "user" + i, DeliveryOutcome.DELIVERED, "round_started", "general");
+        }
+
+        assertThat(registry.get(DeliveryAuditLog.DROPPED).counter().count()).isEqualTo(36);
+        log.start();
+        log.stop();
+        assertThat(written.list).hasSize(64);
+    }
+
+    @Test
+    void record_Disabled_ShouldWriteNothing() throws InterruptedException {
+        DeliveryAuditLog log = new DeliveryAuditLog(false, 1.0, 64, registry);
+
+        log.record(UUID.randomUUID(), "alice", DeliveryOutcome.FAILED, "round_started", "general");
+        log.start();
+        log.stop();
+
+        assertThat(written.list).isEmpty();
+        assertThat(registry.get(DeliveryAuditLog.DROPPED).counter().count()).isZero();
+    }
+}
@@ -0,0 +1,77 @@
+package com.cs203.smucode.config;
+
+import com.cs203.smucode.admission.IngestAdmissionInterceptor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The production filter chain, against stand-in endpoints at the controller's paths
+ */
+@WebMvcTest(controllers = SecurityConfigurationTest.StubController.class)
+@Import({SecurityConfiguration.class, SecurityConfigurationTest.StubController.class})
+class SecurityConfigurationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private JwtDecoder jwtDecoder;
+
+    @MockBean
+    private IngestAdmissionInterceptor ingestAdmissionInterceptor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(ingestAdmissionInterceptor.preHandle(any(), any(), any())).thenReturn(true);
+    }
+
+    @Test
+    void createNotification_UserToken_ShouldBeForbidden() throws Exception {
+        mockMvc.perform(post("/notifications/stream")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_ROLE_USER"))))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void createNotification_SystemToken_ShouldBeAllowed() throws Exception {
+        mockMvc.perform(post("/notifications/stream")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_ROLE_SYSTEM"))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getNotifications_UserToken_ShouldBeAllowed() throws Exception {
+        mockMvc.perform(get("/notifications")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_ROLE_USER"))))
+                .andExpect(status().isOk());
+    }
+
+    @RestController
+    static class StubController {
+
+        @PostMapping("/notifications/stream")
+        void createNotification() {
+        }
+
+        @GetMapping("/notifications")
+        void getNotifications() {
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.cs203.smucode.config;
 
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -32,7 +33,8 @@ public class TestSecurityConfiguration {
     }
 
     @Bean
-    public JwtDecoder jwtDecoder() {
+    @Primary
+    public JwtDecoder testJwtDecoder() {
         return token -> {
             return new Jwt(token, Instant.now(), Instant.now().plusSeconds(300),
                     Map.of("alg", "RS256"), Map.of("sub", "testuser", "scope", "ROLE_USER"));
@@ -6,9 +6,13 @@ import com.cs203.smucode.constants.NotificationType;
 import com.cs203.smucode.dto.IncomingNotificationDTO;
 import com.cs203.smucode.mappers.NotificationMapper;
 import com.cs203.smucode.models.Notification;
+import com.cs203.smucode.repositories.InboxVersionRepository;
 import com.cs203.smucode.repositories.NotificationRepository;
+import com.cs203.smucode.services.IInboxVersionService;
 import com.cs203.smucode.services.INotificationService;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,10 +22,18 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayInputStream;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -46,6 +58,15 @@ class NotificationControllerTest {
     @Autowired
     private INotificationService notificationService;
 
+    @Autowired
+    private IInboxVersionService inboxVersionService;
+
+    @Autowired
+    private InboxVersionRepository inboxVersionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Autowired
     private NotificationMapper notificationMapper;
 
@@ -68,7 +89,11 @@ class NotificationControllerTest {
                 "Tournament is starting soon!",
                 "TOURNAMENT_START",
                 "ALERT",
-                Arrays.asList("user1", "user2")
+                Arrays.asList("user1", "user2"),
+                null,
+                null,
+                null,
+                null
         );
 
         // Setup test notification entity
@@ -122,7 +147,11 @@ class NotificationControllerTest {
                     "Test message",
                     "INVALID_TYPE",
                     "ALERT",
-                    Arrays.asList("user1", "user2")
+                    Arrays.asList("user1", "user2"),
+                    null,
+                    null,
+                    null,
+                    null
             );
 
             mockMvc.perform(post("/notifications/stream")
@@ -132,6 +161,187 @@ class NotificationControllerTest {
                     .andDo(print())
                     .andExpect(status().isBadRequest());
         }
+
+        @Test
+        @DisplayName("Should return the original notification for a repeated idempotency key")
+        void createNotification_RepeatedIdempotencyKey_ReturnsOriginal() throws Exception {
+            IncomingNotificationDTO keyedDTO = new IncomingNotificationDTO(
+                    testTournamentId,
+                    "Test Tournament",
+                    "Tournament is starting soon!",
+                    "TOURNAMENT_STARTED",
+                    "ALERT",
+                    Arrays.asList("user1", "user2"),
+                    "tournament-start-" + testTournamentId,
+                    null,
+                    null,
+                    null
+            );
+            String payload = objectMapper.writeValueAsString(keyedDTO);
+
+            MvcResult first = mockMvc.perform(post("/notifications/stream")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(payload))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            String id = objectMapper.readTree(first.getResponse().getContentAsString()).get("id").asText();
+
+            mockMvc.perform(post("/notifications/stream")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(payload))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.id").value(id));
+
+            assertThat(notificationRepository.findAll()).hasSize(1);
+        }
+
+        @Test
+        @DisplayName("Should hold a scheduled notification back until its delivery time")
+        void createNotification_FutureDeliverAt_ReleasedWhenDue() throws Exception {
+            IncomingNotificationDTO scheduledDTO = new IncomingNotificationDTO(
+                    testTournamentId,
+                    "Test Tournament",
+                    "Round starts in 5 minutes",
+                    "TOURNAMENT_STARTED",
+                    "ALERT",
+                    Arrays.asList("testuser"),
+                    null,
+                    OffsetDateTime.now(ZoneOffset.UTC).plusSeconds(1),
+                    null,
+                    null
+            );
+
+            MvcResult created = mockMvc.perform(post("/notifications/stream")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(scheduledDTO)))
+                    .andExpect(status().isAccepted())
+                    .andReturn();
+            UUID id = UUID.fromString(objectMapper.readTree(created.getResponse().getContentAsString()).get("id").asText());
+
+            assertThat(inbox()).isEmpty();
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (notificationRepository.findById(id).orElseThrow().getPending()
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertThat(inbox()).hasSize(1);
+            assertThat(inbox().get(0).get("message").asText()).isEqualTo("Round starts in 5 minutes");
+        }
+
+        @Test
+        @DisplayName("Should reject a delivery time without an offset")
+        void createNotification_DeliverAtWithoutOffset_ReturnsBadRequest() throws Exception {
+            ObjectNode body = objectMapper.valueToTree(testIncomingNotificationDTO);
+            body.put("deliverAt", "2030-01-01T09:00:00");
+
+            mockMvc.perform(post("/notifications/stream")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(body)))
+                    .andExpect(status().isBadRequest());
+
+            assertThat(notificationRepository.findAll()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should store a templated notification as parameters and render it on the way out")
+        void createNotification_Template_StoresParametersAndRendersMessage() throws Exception {
+            IncomingNotificationDTO templatedDTO = new IncomingNotificationDTO(
+                    testTournamentId,
+                    "Test Tournament",
+                    null,
+                    "ROUND_STARTED",
+                    "GENERAL",
+                    Arrays.asList("testuser"),
+                    null,
+                    null,
+                    "round-started",
+                    Map.of("round", "3")
+            );
+
+            mockMvc.perform(post("/notifications/stream")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(templatedDTO)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.message").value("Round 3 of Test Tournament has started"));
+
+            Notification stored = notificationRepository.findAll().get(0);
+            assertThat(stored.getMessage()).isNull();
+            assertThat(stored.getTemplateParams()).isEqualTo("3");
+
+            MvcResult result = mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .header("Accept-Language", "fr"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(jsonPath("$[0].message").value("La manche 3 de Test Tournament a commencé"));
+        }
+
+        @Test
+        @DisplayName("Should render the live event in the default locale whatever the publisher's language")
+        void createNotification_TemplatePublisherLanguage_RendersDefaultLocale() throws Exception {
+            IncomingNotificationDTO templatedDTO = new IncomingNotificationDTO(
+                    testTournamentId,
+                    "Test Tournament",
+                    null,
+                    "ROUND_STARTED",
+                    "GENERAL",
+                    Arrays.asList("testuser"),
+                    null,
+                    null,
+                    "round-started",
+                    Map.of("round", "3")
+            );
+
+            // The response body is the event fanned out to subscribers
+            mockMvc.perform(post("/notifications/stream")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .header("Accept-Language", "fr")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(templatedDTO)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.message").value("Round 3 of Test Tournament has started"));
+        }
+
+        @Test
+        @DisplayName("Should reject a template without its parameters")
+        void createNotification_TemplateMissingParameter_ReturnsBadRequest() throws Exception {
+            IncomingNotificationDTO templatedDTO = new IncomingNotificationDTO(
+                    testTournamentId,
+                    "Test Tournament",
+                    null,
+                    "ROUND_STARTED",
+                    "GENERAL",
+                    Arrays.asList("testuser"),
+                    null,
+                    null,
+                    "round-started",
+                    Map.of()
+            );
+
+            mockMvc.perform(post("/notifications/stream")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(templatedDTO)))
+                    .andExpect(status().isBadRequest());
+            assertThat(notificationRepository.findAll()).isEmpty();
+        }
+
+        private JsonNode inbox() throws Exception {
+            MvcResult result = mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            return objectMapper.readTree(mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+        }
     }
 
     @Nested
@@ -147,6 +357,114 @@ class NotificationControllerTest {
                     .andExpect(status().isOk());
         }
 
+        @Test
+        @DisplayName("Should start the stream with a jittered retry hint")
+        void subscribe_ValidToken_SendsRetryHint() throws Exception {
+            MvcResult result = mockMvc.perform(get("/notifications/subscribe")
+                            .header("Authorization", "Bearer " + testJWT))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            assertThat(result.getResponse().getContentAsString()).containsPattern("^retry:\\d+\n\n");
+        }
+
+        @Test
+        @DisplayName("Should replay changes after the Last-Event-ID watermark")
+        void subscribe_WithLastEventId_ReplaysNewerChanges() throws Exception {
+            LocalDateTime watermark = LocalDateTime.now().minusMinutes(1);
+            testNotification.setRecipients(Arrays.asList("testuser"));
+            notificationRepository.save(testNotification);
+
+            MvcResult result = mockMvc.perform(get("/notifications/subscribe")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .header("Last-Event-ID", watermark.toString()))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            assertThat(result.getResponse().getContentAsString())
+                    .contains("id:")
+                    .contains("data:")
+                    .contains("Tournament is starting soon!");
+        }
+
+        @Test
+        @DisplayName("Should stop the replay at the limit and tell the client to resync")
+        void subscribe_ReplayOverLimit_SendsResync() throws Exception {
+            LocalDateTime watermark = LocalDateTime.now().minusMinutes(1);
+            // The test profile caps the replay at 2
+            for (int i = 0; i < 3; i++) {
+                testNotification.setId(UUID.randomUUID());
+                testNotification.setMessage("Round " + i + " has started");
+                testNotification.setRecipients(Arrays.asList("testuser"));
+                notificationRepository.save(testNotification);
+            }
+
+            MvcResult result = mockMvc.perform(get("/notifications/subscribe")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .header("Last-Event-ID", watermark.toString()))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            assertThat(result.getResponse().getContentAsString())
+                    .contains("Round 0 has started", "Round 1 has started", "event:resync")
+                    .doesNotContain("Round 2 has started");
+        }
+
+        @Test
+        @DisplayName("Should replay in the compact format when asked for it")
+        void subscribe_CompactFormat_ReplaysCompactPayloads() throws Exception {
+            LocalDateTime watermark = LocalDateTime.now().minusMinutes(1);
+            testNotification.setRecipients(Arrays.asList("testuser"));
+            notificationRepository.save(testNotification);
+
+            MvcResult result = mockMvc.perform(get("/notifications/subscribe")
+                            .param("format", "compact")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .header("Last-Event-ID", watermark.toString()))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            assertThat(result.getResponse().getContentAsString())
+                    .contains("\"m\":\"Tournament is starting soon!\"")
+                    .doesNotContain("\"tournamentName\"");
+        }
+
+        @Test
+        @DisplayName("Should leave filtered out categories out of the replay")
+        void subscribe_CategoryFilter_SkipsOtherCategories() throws Exception {
+            LocalDateTime watermark = LocalDateTime.now().minusMinutes(1);
+            testNotification.setRecipients(Arrays.asList("testuser"));
+            notificationRepository.save(testNotification);
+
+            MvcResult result = mockMvc.perform(get("/notifications/subscribe")
+                            .param("category", "general")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .header("Last-Event-ID", watermark.toString()))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            assertThat(result.getResponse().getContentAsString())
+                    .doesNotContain("Tournament is starting soon!");
+        }
+
+        @Test
+        @DisplayName("Should reject an unknown category filter")
+        void subscribe_UnknownCategory_ReturnsBadRequest() throws Exception {
+            mockMvc.perform(get("/notifications/subscribe")
+                            .param("category", "urgent")
+                            .header("Authorization", "Bearer " + testJWT))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @DisplayName("Should reject an unknown wire format")
+        void subscribe_UnknownFormat_ReturnsBadRequest() throws Exception {
+            mockMvc.perform(get("/notifications/subscribe")
+                            .param("format", "xml")
+                            .header("Authorization", "Bearer " + testJWT))
+                    .andExpect(status().isBadRequest());
+        }
+
         @Test
         @DisplayName("Should reject subscription without token")
         void subscribe_NoToken_ReturnsUnauthorized() throws Exception {
@@ -171,25 +489,297 @@ class NotificationControllerTest {
         @Test
         @DisplayName("Should get user notifications successfully")
         void getNotifications_ValidToken_Success() throws Exception {
+            testNotification.setRecipients(Arrays.asList("testuser"));
             notificationRepository.save(testNotification);
 
-            mockMvc.perform(get("/notifications/")
+            MvcResult result = mockMvc.perform(get("/notifications/")
                             .header("Authorization", "Bearer " + testJWT))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(result))
                     .andDo(print())
-                    .andExpect(status().isOk());
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(1))
+                    .andExpect(jsonPath("$[0].type").value("tournament_started"))
+                    .andExpect(jsonPath("$[0].category").value("alert"));
         }
 
         @Test
         @DisplayName("Should return empty list when no notifications exist")
         void getNotifications_NoNotifications_ReturnsEmptyList() throws Exception {
-            mockMvc.perform(get("/notifications/")
+            MvcResult result = mockMvc.perform(get("/notifications/")
                             .header("Authorization", "Bearer " + testJWT))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(result))
                     .andDo(print())
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$").isArray())
                     .andExpect(jsonPath("$").isEmpty());
         }
 
+        @Test
+        @DisplayName("Should gzip the inbox when the client accepts it")
+        void getNotifications_AcceptsGzip_ReturnsCompressedBody() throws Exception {
+            testNotification.setRecipients(Arrays.asList("testuser"));
+            notificationRepository.save(testNotification);
+
+            MvcResult result = mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .header("Accept-Encoding", "gzip, deflate"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            byte[] body = mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Content-Encoding", "gzip"))
+                    .andReturn().getResponse().getContentAsByteArray();
+
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                JsonNode notifications = objectMapper.readTree(in);
+                assertThat(notifications.isArray()).isTrue();
+                assertThat(notifications.size()).isEqualTo(1);
+                assertThat(notifications.get(0).get("message").asText()).isEqualTo("Tournament is starting soon!");
+            }
+        }
+
+        @Test
+        @DisplayName("Should return 304 when inbox has not changed since the client's ETag")
+        void getNotifications_MatchingETag_ReturnsNotModified() throws Exception {
+            String eTag = mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT))
+                    .andExpect(header().exists("ETag"))
+                    .andReturn().getResponse().getHeader("ETag");
+
+            mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .header("If-None-Match", eTag))
+                    .andDo(print())
+                    .andExpect(request().asyncNotStarted())
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("ETag", eTag));
+        }
+
+        @Test
+        @DisplayName("Should return fresh inbox after the ETag is invalidated")
+        void getNotifications_StaleETag_ReturnsOk() throws Exception {
+            String eTag = mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT))
+                    .andReturn().getResponse().getHeader("ETag");
+
+            testNotification.setRecipients(Arrays.asList("testuser"));
+            notificationService.createNotification(testNotification);
+
+            MvcResult result = mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .header("If-None-Match", eTag))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(result))
+                    .andDo(print())
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(1));
+        }
+
+        @Test
+        @DisplayName("Should only return notifications matching every filter, newest first")
+        void getNotifications_WithFilters_ReturnsMatchingNotifications() throws Exception {
+            testNotification.setRecipients(Arrays.asList("testuser"));
+            testNotification.setCreatedAt(LocalDateTime.now().minusMinutes(2));
+            notificationRepository.save(testNotification);
+            notificationRepository.save(inboxNotification(testTournamentId, "Round 1 has started",
+                    NotificationType.ROUND_STARTED, LocalDateTime.now().minusMinutes(1)));
+            notificationRepository.save(inboxNotification(testTournamentId, "Round 2 has started",
+                    NotificationType.ROUND_STARTED, LocalDateTime.now()));
+            notificationRepository.save(inboxNotification(UUID.randomUUID(), "Round 1 has started",
+                    NotificationType.ROUND_STARTED, LocalDateTime.now()));
+
+            MvcResult result = mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .param("tournamentId", testTournamentId.toString())
+                            .param("type", "round_started"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(result))
+                    .andDo(print())
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(2))
+                    .andExpect(jsonPath("$[0].message").value("Round 2 has started"))
+                    .andExpect(jsonPath("$[1].message").value("Round 1 has started"));
+        }
+
+        @Test
+        @DisplayName("Should match search words as prefixes of the message or tournament name")
+        void getNotifications_WithSearch_ReturnsMatchingNotifications() throws Exception {
+            testNotification.setRecipients(Arrays.asList("testuser"));
+            notificationRepository.save(testNotification);
+            notificationRepository.save(inboxNotification(testTournamentId, "Round 1 has started",
+                    NotificationType.ROUND_STARTED, LocalDateTime.now()));
+
+            MvcResult result = mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .param("q", "test sta"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(1))
+                    .andExpect(jsonPath("$[0].message").value("Tournament is starting soon!"));
+        }
+
+        @Test
+        @DisplayName("Should invalidate the ETag on a write this instance did not make")
+        void getNotifications_WriteElsewhere_ReturnsOk() throws Exception {
+            String eTag = mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT))
+                    .andReturn().getResponse().getHeader("ETag");
+
+            // Straight to the database, as another replica would, then the invalidation InboxVersionListener relays
+            testNotification.setRecipients(Arrays.asList("testuser"));
+            transactionTemplate.executeWithoutResult(status -> {
+                notificationRepository.save(testNotification);
+                inboxVersionRepository.bump(List.of("testuser"), LocalDateTime.now());
+            });
+            inboxVersionService.invalidate(List.of("testuser"));
+
+            mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .header("If-None-Match", eTag))
+                    .andExpect(request().asyncStarted());
+        }
+
+        @Test
+        @DisplayName("Should give filtered views their own ETag")
+        void getNotifications_WithFilters_UsesDistinctETag() throws Exception {
+            String inboxETag = mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT))
+                    .andReturn().getResponse().getHeader("ETag");
+
+            String filteredETag = mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .param("read", "false"))
+                    .andReturn().getResponse().getHeader("ETag");
+
+            assertThat(filteredETag).isNotEqualTo(inboxETag);
+            mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .param("read", "false")
+                            .header("If-None-Match", filteredETag))
+                    .andExpect(status().isNotModified());
+            mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .param("read", "true")
+                            .header("If-None-Match", filteredETag))
+                    .andExpect(request().asyncStarted());
+        }
+
+        @Test
+        @DisplayName("Should give each encoding and language its own ETag")
+        void getNotifications_OtherEncodingOrLanguage_UsesDistinctETag() throws Exception {
+            String identityETag = mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT))
+                    .andReturn().getResponse().getHeader("ETag");
+
+            String gzipETag = mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .header("Accept-Encoding", "gzip"))
+                    .andReturn().getResponse().getHeader("ETag");
+            String frenchETag = mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .header("Accept-Language", "fr"))
+                    .andReturn().getResponse().getHeader("ETag");
+
+            assertThat(gzipETag).isNotEqualTo(identityETag);
+            assertThat(frenchETag).isNotEqualTo(identityETag);
+            mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .header("If-None-Match", gzipETag))
+                    .andExpect(request().asyncStarted());
+        }
+
+        @Test
+        @DisplayName("Should reject an unknown notification type filter")
+        void getNotifications_UnknownType_ReturnsBadRequest() throws Exception {
+            mockMvc.perform(get("/notifications/")
+                            .header("Authorization", "Bearer " + testJWT)
+                            .param("type", "not_a_type"))
+                    .andExpect(status().isBadRequest());
+        }
+
+        private Notification inboxNotification(UUID tournamentId, String message, NotificationType type,
+                                               LocalDateTime createdAt) {
+            Notification notification = new Notification();
+            notification.setTournamentId(tournamentId);
+            notification.setTournamentName("Weekly Round");
+            notification.setMessage(message);
+            notification.setType(type);
+            notification.setCategory(NotificationCategory.GENERAL);
+            notification.setRecipients(Arrays.asList("testuser"));
+            notification.setIsRead(false);
+            notification.setCreatedAt(createdAt);
+            return notification;
+        }
+
+    }
+
+    @Nested
+    @DisplayName("Delta Sync Operations")
+    class DeltaSyncOperations {
+
+        @Test
+        @DisplayName("Should return all notifications and a watermark on first sync")
+        void getChanges_NoWatermark_ReturnsAllNotifications() throws Exception {
+            testNotification.setRecipients(Arrays.asList("testuser"));
+            notificationRepository.save(testNotification);
+
+            mockMvc.perform(get("/notifications/changes")
+                            .header("Authorization", "Bearer " + testJWT))
+                    .andDo(print())
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.changes.length()").value(1))
+                    .andExpect(jsonPath("$.watermark").exists());
+        }
+
+        @Test
+        @DisplayName("Should return only notifications changed after the watermark")
+        void getChanges_WithWatermark_ReturnsOnlyNewerChanges() throws Exception {
+            testNotification.setRecipients(Arrays.asList("testuser"));
+            Notification saved = notificationRepository.save(testNotification);
+            LocalDateTime synced = notificationRepository.findById(saved.getId()).orElseThrow().getUpdatedAt();
+
+            mockMvc.perform(get("/notifications/changes")
+                            .param("since", synced.toString())
+                            .header("Authorization", "Bearer " + testJWT))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.changes").isEmpty());
+
+            mockMvc.perform(patch("/notifications/" + saved.getId() + "/read")
+                            .header("Authorization", "Bearer " + testJWT))
+                    .andExpect(status().isOk());
+
+            mockMvc.perform(get("/notifications/changes")
+                            .param("since", synced.toString())
+                            .header("Authorization", "Bearer " + testJWT))
+                    .andDo(print())
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.changes.length()").value(1))
+                    .andExpect(jsonPath("$.changes[0].isRead").value(true));
+        }
+
+        @Test
+        @DisplayName("Should reject a malformed watermark")
+        void getChanges_InvalidWatermark_ReturnsBadRequest() throws Exception {
+            mockMvc.perform(get("/notifications/changes")
+                            .param("since", "yesterday")
+                            .header("Authorization", "Bearer " + testJWT))
+                    .andDo(print())
+                    .andExpect(status().isBadRequest());
+        }
     }
 
     @Nested
@@ -298,7 +888,11 @@ class NotificationControllerTest {
                     "",    // Invalid: message cannot be blank
                     "TOURNAMENT_START",
                     "ALERT",
-                    Arrays.asList("user1", "user2")
+                    Arrays.asList("user1", "user2"),
+                    null,
+                    null,
+                    null,
+                    null
             );
 
             mockMvc.perform(post("/notifications/stream")
@@ -337,7 +931,11 @@ class NotificationControllerTest {
                     "Test message",
                     "TOURNAMENT_START",
                     "ALERT",
-                    Arrays.asList()
+                    Arrays.asList(),
+                    null,
+                    null,
+                    null,
+                    null
             );
 
             mockMvc.perform(post("/notifications/stream")
@@ -0,0 +1,136 @@
+package com.cs203.smucode.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private ReplicaLagMonitor lagMonitor;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        primary = h2("primary");
+        replica = h2("replica");
+        lagMonitor = new ReplicaLagMonitor(primary, Map.of("replica", replica), 5000, 1000, new SimpleMeterRegistry());
+        lagMonitor.createTable();
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(lagMonitor);
+        routing.setTargetDataSources(Map.of(ReplicaRoutingDataSource.PRIMARY, primary, "replica", replica));
+        routing.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        jdbc = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @Test
+    void readOnlyTransaction_ReplicaInSync_ShouldReadFromReplica() {
+        replicate();
+        lagMonitor.check();
+
+        assertThat(nodeIn(readOnly)).isEqualTo("replica");
+        assertThat(nodeIn(readWrite)).isEqualTo("primary");
+    }
+
+    @Test
+    void readOnlyTransaction_ReplicaLagging_ShouldFallBackToPrimary() {
+        lagMonitor.beat();
+        new JdbcTemplate(replica).execute("CREATE TABLE IF NOT EXISTS " + ReplicaLagMonitor.TABLE
+                + " (id INT PRIMARY KEY, beat_at BIGINT NOT NULL)");
+        new JdbcTemplate(replica).update("INSERT INTO " + ReplicaLagMonitor.TABLE + " VALUES (1, ?)",
+                System.currentTimeMillis() - 60_000);
+        lagMonitor.check();
+
+        assertThat(lagMonitor.healthyReplicas()).isEmpty();
+        assertThat(nodeIn(readOnly)).isEqualTo("primary");
+    }
+
+    @Test
+    void readOnlyTransaction_NoHeartbeatOnReplica_ShouldFallBackToPrimary() {
+        lagMonitor.beat();
+        lagMonitor.check();
+
+        assertThat(nodeIn(readOnly)).isEqualTo("primary");
+    }
+
+    @Test
+    void readOnlyTransaction_PrimaryRequired_ShouldReadFromPrimary() {
+        replicate();
+        lagMonitor.check();
+
+        String node = ReplicaRouting.onPrimary(() -> nodeIn(readOnly));
+
+        assertThat(node).isEqualTo("primary");
+        assertThat(ReplicaRouting.isPrimaryRequired()).isFalse();
+    }
+
+    @Test
+    void start_NoReplicas_ShouldLeavePrimaryAlone() {
+        DataSource idle = h2("idle");
+        ReplicaLagMonitor disabled = new ReplicaLagMonitor(idle, Map.of(), 5000, 1000, new SimpleMeterRegistry());
+
+        disabled.start();
+        disabled.stop();
+
+        assertThat(new JdbcTemplate(idle).queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE LOWER(TABLE_NAME) = ?",
+                Integer.class, ReplicaLagMonitor.TABLE)).isZero();
+    }
+
+    @Test
+    void replicaProperties_ReplicaNamedPrimary_ShouldBeRejected() {
+        List<ReplicaProperties.Node> nodes = List.of(
+                new ReplicaProperties.Node(ReplicaRoutingDataSource.PRIMARY, "jdbc:h2:mem:replica", "sa", ""));
+
+        assertThatThrownBy(() -> new ReplicaProperties(true, nodes, 5000, 1000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String nodeIn(TransactionTemplate transaction) {
+        return transaction.execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    /**
+     * Stands in for replication by copying the primary's heartbeat across
+     */
+    private void replicate() {
+        lagMonitor.beat();
+        Long beatAt = new JdbcTemplate(primary).queryForObject(
+                "SELECT beat_at FROM " + ReplicaLagMonitor.TABLE + " WHERE id = 1", Long.class);
+        JdbcTemplate replicaJdbc = new JdbcTemplate(replica);
+        replicaJdbc.execute("CREATE TABLE IF NOT EXISTS " + ReplicaLagMonitor.TABLE
+                + " (id INT PRIMARY KEY, beat_at BIGINT NOT NULL)");
+        replicaJdbc.update("MERGE INTO " + ReplicaLagMonitor.TABLE + " KEY (id) VALUES (1, ?)", beatAt);
+    }
+
+    private static DataSource h2(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(16))");
+        jdbc.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,219 @@
+package com.cs203.smucode.discovery;
+
+import com.cs203.smucode.constants.DeliveryLane;
+import com.cs203.smucode.handlers.FanoutScheduler;
+import com.cs203.smucode.services.impl.NotificationServiceImpl;
+import com.cs203.smucode.utils.RotatingBloomFilter;
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.netflix.eureka.EurekaServiceInstance;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeastLoadedServiceInstanceLoadBalancerTest {
+
+    private static final String SERVICE_ID = "notification-service";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<String, Replica> replicas = new LinkedHashMap<>();
+    private LeastLoadedServiceInstanceLoadBalancer loadBalancer;
+
+    @BeforeEach
+    void setUp() {
+        EurekaStandIn eureka = new EurekaStandIn();
+        for (String id : List.of("a", "b", "c")) {
+            replicas.put(id, new Replica(id, eureka));
+        }
+        loadBalancer = new LeastLoadedServiceInstanceLoadBalancer(eureka.provider(), 256);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (Replica replica : replicas.values()) {
+            replica.fanoutScheduler.stop();
+        }
+    }
+
+    @Test
+    void choose_Subscribe_ShouldFillLeastLoadedReplicasFirst() {
+        replicas.get("a").connect(30);
+        replicas.get("c").connect(10);
+        replicas.values().forEach(replica -> replica.publisher.publish());
+
+        Map<String, Integer> picks = subscribe(40);
+
+        // b catches up with c, then the two share the rest while a stays above them
+        assertThat(picks).containsEntry("b", 25).containsEntry("c", 15).doesNotContainKey("a");
+    }
+
+    @Test
+    void choose_NewReport_ShouldReplaceStreamsCountedLocally() {
+        replicas.values().forEach(replica -> replica.publisher.publish());
+        subscribe(30);
+
+        // Only 4 of the 10 streams sent to b arrived, a and c still count the 10 sent to each
+        replicas.get("b").connect(4);
+        replicas.get("b").publisher.publish();
+
+        assertThat(subscribe(6)).containsOnlyKeys("b");
+    }
+
+    @Test
+    void choose_PendingFanout_ShouldCountAsLoad() throws InterruptedException {
+        Replica busy = replicas.get("a");
+        CountDownLatch release = new CountDownLatch(1);
+        busy.fanoutScheduler.submit(DeliveryLane.STANDARD, 0, () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        replicas.get("b").connect(100);
+        replicas.get("c").connect(100);
+        replicas.values().forEach(replica -> replica.publisher.publish());
+
+        // One pending batch weighs 256 streams
+        assertThat(subscribe(10)).doesNotContainKey("a");
+        release.countDown();
+    }
+
+    @Test
+    void choose_OtherRequests_ShouldRoundRobin() {
+        replicas.get("a").connect(50);
+        replicas.values().forEach(replica -> replica.publisher.publish());
+
+        Map<String, Integer> picks = new HashMap<>();
+        for (int i = 0; i < 6; i++) {
+            ServiceInstance instance = loadBalancer.choose(request("/api/notifications")).block().getServer();
+            picks.merge(instance.getInstanceId(), 1, Integer::sum);
+        }
+
+        assertThat(picks).containsEntry("a", 2).containsEntry("b", 2).containsEntry("c", 2);
+    }
+
+    @Test
+    void publish_UnchangedLoad_ShouldNotReregister() {
+        Replica replica = replicas.get("a");
+        replica.connect(3);
+        replica.publisher.publish();
+        replica.instanceInfo.setIsDirty();
+        replica.instanceInfo.unsetIsDirty(replica.instanceInfo.getLastDirtyTimestamp());
+
+        replica.publisher.publish();
+        assertThat(replica.instanceInfo.isDirty()).isFalse();
+
+        replica.connect(1);
+        replica.publisher.publish();
+        assertThat(replica.instanceInfo.isDirty()).isTrue();
+        assertThat(replica.instanceInfo.getMetadata()).containsEntry(LoadMetadataPublisher.EMITTERS, "4");
+    }
+
+    private Map<String, Integer> subscribe(int streams) {
+        Map<String, Integer> picks = new HashMap<>();
+        for (int i = 0; i < streams; i++) {
+            ServiceInstance instance = loadBalancer.choose(request("/api/notifications/subscribe")).block().getServer();
+            picks.merge(instance.getInstanceId(), 1, Integer::sum);
+        }
+        return picks;
+    }
+
+    private static Request<RequestDataContext> request(String path) {
+        RequestData data = new RequestData(HttpMethod.GET, URI.create("http://" + SERVICE_ID + path),
+                new HttpHeaders(), new LinkedMultiValueMap<>(), Map.of());
+        return new DefaultRequest<>(new RequestDataContext(data));
+    }
+
+    /**
+     * One notification service instance, registered with the stand-in
+     */
+    private class Replica {
+
+        private final NotificationServiceImpl notificationService = new NotificationServiceImpl(
+                null, null, null, new RotatingBloomFilter(1000, 0.01, TimeUnit.MINUTES.toNanos(10)));
+        private final FanoutScheduler fanoutScheduler = new FanoutScheduler(1, 256, 1024, 100, 5000, registry);
+        private final InstanceInfo instanceInfo;
+        private final LoadMetadataPublisher publisher;
+
+        Replica(String id, EurekaStandIn eureka) {
+            instanceInfo = InstanceInfo.Builder.newBuilder()
+                    .setAppName(SERVICE_ID)
+                    .setInstanceId(id)
+                    .setHostName(id + ".local")
+                    .setPort(8082)
+                    .build();
+            eureka.register(instanceInfo);
+            StaticListableBeanFactory beans = new StaticListableBeanFactory();
+            beans.addBean("applicationInfoManager", new ApplicationInfoManager(null, instanceInfo));
+            publisher = new LoadMetadataPublisher(5000, notificationService, fanoutScheduler,
+                    beans.getBeanProvider(ApplicationInfoManager.class));
+            fanoutScheduler.start();
+        }
+
+        void connect(int streams) {
+            for (int i = 0; i < streams; i++) {
+                notificationService.getEmitters().put("user" + notificationService.getEmitters().size(), new SseEmitter());
+            }
+        }
+    }
+
+    /**
+     * In-memory registry standing in for a Eureka server and the client's registry fetch
+     */
+    private static class EurekaStandIn {
+
+        private final List<InstanceInfo> instances = new ArrayList<>();
+
+        void register(InstanceInfo instance) {
+            instances.add(instance);
+        }
+
+        ObjectProvider<ServiceInstanceListSupplier> provider() {
+            StaticListableBeanFactory beans = new StaticListableBeanFactory();
+            beans.addBean("serviceInstanceListSupplier", new ServiceInstanceListSupplier() {
+                @Override
+                public String getServiceId() {
+                    return SERVICE_ID;
+                }
+
+                @Override
+                public Flux<List<ServiceInstance>> get() {
+                    // A fresh copy of the metadata on every fetch, as the real client sees it
+                    return Flux.defer(() -> Flux.just(instances.stream()
+                            .map(instance -> (ServiceInstance) new EurekaServiceInstance(
+                                    new InstanceInfo.Builder(new InstanceInfo(instance))
+                                            .setMetadata(new HashMap<>(instance.getMetadata()))
+                                            .build()))
+                            .toList()));
+                }
+            });
+            return beans.getBeanProvider(ServiceInstanceListSupplier.class);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.cs203.smucode.dto;
+
+import com.cs203.smucode.constants.NotificationType;
+import com.cs203.smucode.constants.WireFormat;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EncodedNotificationTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 11, 2, 14, 30, 5, 123_000_000);
+
+    private final OutgoingNotificationDTO notification = new OutgoingNotificationDTO(
+            UUID.fromString("6f1c2a4e-8d3b-4b7a-9e21-3c5d7f9a1b2c"),
+            UUID.fromString("0a9b8c7d-6e5f-4a3b-2c1d-0e9f8a7b6c5d"),
+            "SMU Code Open",
+            "Round 3 has started",
+            "round_started",
+            "general",
+            CREATED_AT,
+            false);
+
+    @Test
+    void get_ShouldEncodeEachFormatOnce() {
+        EncodedNotification encoded = new EncodedNotification(notification);
+
+        assertThat(encoded.get(WireFormat.COMPACT)).isSameAs(encoded.get(WireFormat.COMPACT));
+        assertThat(encoded.get(WireFormat.JSON)).isEqualTo(notification.toJson());
+    }
+
+    @Test
+    void compact_ShouldUseShortKeysOrdinalsAndEpochMillis() throws Exception {
+        JsonNode compact = new ObjectMapper().readTree(new EncodedNotification(notification).get(WireFormat.COMPACT));
+
+        assertThat(compact.get("i").asText()).isEqualTo(notification.id().toString());
+        assertThat(compact.get("tn").asText()).isEqualTo("SMU Code Open");
+        assertThat(compact.get("m").asText()).isEqualTo("Round 3 has started");
+        assertThat(compact.get("ty").asInt()).isEqualTo(NotificationType.ROUND_STARTED.ordinal());
+        assertThat(compact.get("c").asInt()).isEqualTo(1);
+        assertThat(compact.get("at").asLong())
+                .isEqualTo(CREATED_AT.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        assertThat(compact.get("r").asInt()).isZero();
+    }
+
+    @Test
+    void cbor_ShouldBeAnArrayWithBinaryUuids() {
+        byte[] cbor = Base64.getDecoder().decode(new EncodedNotification(notification).get(WireFormat.CBOR));
+
+        assertThat(cbor[0] & 0xff).isEqualTo(0x88);
+        assertThat(cbor[1] & 0xff).isEqualTo(0x50);
+        ByteBuffer id = ByteBuffer.wrap(Arrays.copyOfRange(cbor, 2, 18));
+        assertThat(new UUID(id.getLong(), id.getLong())).isEqualTo(notification.id());
+        assertThat(cbor[cbor.length - 1] & 0xff).isEqualTo(0xf4);
+    }
+
+    @Test
+    void compactFormats_ShouldBeSmallerThanJson() {
+        EncodedNotification encoded = new EncodedNotification(notification);
+
+        int json = encoded.get(WireFormat.JSON).length();
+        int compact = encoded.get(WireFormat.COMPACT).length();
+        int cbor = encoded.get(WireFormat.CBOR).length();
+        assertThat(compact).isLessThan(json);
+        assertThat(cbor).isLessThan(compact);
+    }
+}
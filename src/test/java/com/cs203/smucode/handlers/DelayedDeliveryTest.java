@@ -0,0 +1,78 @@
+package com.cs203.smucode.handlers;
+
+import com.cs203.smucode.mappers.NotificationMapper;
+import com.cs203.smucode.metrics.ErrorTelemetry;
+import com.cs203.smucode.models.Notification;
+import com.cs203.smucode.services.INotificationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class DelayedDeliveryTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final INotificationService notificationService = mock(INotificationService.class);
+    private final NotificationMapper notificationMapper = mock(NotificationMapper.class);
+    private final EventHandler eventHandler = mock(EventHandler.class);
+    private DelayedDelivery delayedDelivery;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        delayedDelivery.stop();
+    }
+
+    @Test
+    void rebuild_PendingRowLeftByAnotherReplica_ShouldReleaseAndFanOut() {
+        Notification overdue = pending(LocalDateTime.now().minusMinutes(5));
+        Notification later = pending(LocalDateTime.now().plusHours(1));
+        when(notificationService.getPendingDeliveries()).thenReturn(Map.of(
+                overdue.getId(), overdue.getDeliverAt(), later.getId(), later.getDeliverAt()));
+        when(notificationService.releaseDue(List.of(overdue.getId()))).thenReturn(List.of(overdue));
+
+        delayedDelivery = start();
+        delayedDelivery.rebuild();
+
+        verify(eventHandler, timeout(5000)).handleEvent(eq(overdue.getRecipients()), any(), any());
+        verify(notificationService, never()).releaseDue(List.of(later.getId()));
+    }
+
+    @Test
+    void run_NothingScheduled_ShouldNotQueryTheDatabase() {
+        delayedDelivery = start();
+
+        verify(notificationService, after(500).never()).releaseDue(anyCollection());
+        verifyNoInteractions(notificationService);
+    }
+
+    private DelayedDelivery start() {
+        DelayedDelivery delivery = new DelayedDelivery(100, 512, 500, 5000, notificationService,
+                notificationMapper, eventHandler, new ErrorTelemetry(registry, 60, 100), registry);
+        delivery.start();
+        return delivery;
+    }
+
+    private static Notification pending(LocalDateTime deliverAt) {
+        Notification notification = new Notification();
+        notification.setId(UUID.randomUUID());
+        notification.setDeliverAt(deliverAt);
+        notification.setPending(true);
+        notification.setRecipients(List.of("alice"));
+        return notification;
+    }
+}
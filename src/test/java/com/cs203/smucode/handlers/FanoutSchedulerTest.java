@@ -0,0 +1,163 @@
+package com.cs203.smucode.handlers;
+
+import com.cs203.smucode.constants.DeliveryLane;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FanoutSchedulerTest {
+
+    private static final int BROADCAST_BATCHES = 200;
+
+    private SimpleMeterRegistry registry;
+    private FanoutScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        // A single worker, so the alert can only get ahead of the broadcast by preempting it
+        scheduler = start(1, 1024);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        scheduler.stop();
+    }
+
+    @Test
+    void priorityBatch_DuringLargeBroadcast_ShouldRunRightAfterCurrentBatch() throws Exception {
+        List<String> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch broadcastDone = new CountDownLatch(BROADCAST_BATCHES);
+        scheduler.submit(DeliveryLane.STANDARD, 0, () -> {
+            running.countDown();
+            await(release);
+            ran.add("broadcast");
+            broadcastDone.countDown();
+        });
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i < BROADCAST_BATCHES; i++) {
+            scheduler.submit(DeliveryLane.STANDARD, 0, () -> {
+                ran.add("broadcast");
+                broadcastDone.countDown();
+            });
+        }
+
+        scheduler.submit(DeliveryLane.PRIORITY, 0, () -> ran.add("alert"));
+        release.countDown();
+
+        assertThat(broadcastDone.await(10, TimeUnit.SECONDS)).isTrue();
+        // At most the batch already running goes first
+        assertThat(ran.indexOf("alert")).isEqualTo(1);
+    }
+
+    @Test
+    void submit_ShouldRecordLatencyPerLane() throws Exception {
+        scheduler.submit(DeliveryLane.PRIORITY, 0, () -> { });
+        scheduler.submit(DeliveryLane.STANDARD, 0, () -> { });
+        // Runs once both are done and recorded, the worker records a batch before taking the next
+        CountDownLatch after = new CountDownLatch(1);
+        scheduler.submit(DeliveryLane.STANDARD, 0, after::countDown);
+        assertThat(after.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Timer priority = registry.get(FanoutScheduler.LANE_LATENCY).tag("lane", "priority").timer();
+        Timer standard = registry.get(FanoutScheduler.LANE_LATENCY).tag("lane", "standard").timer();
+        assertThat(priority.count()).isEqualTo(1);
+        assertThat(standard.count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void submit_ManyWorkers_ShouldKeepEachUsersEventsInOrder() throws Exception {
+        scheduler.stop();
+        scheduler = start(4, 8192);
+        Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            users.add("user" + i);
+        }
+        int events = 100;
+        CountDownLatch done = new CountDownLatch(events * users.size());
+
+        for (int event = 0; event < events; event++) {
+            int sequence = event;
+            for (String user : users) {
+                scheduler.submit(DeliveryLane.STANDARD, scheduler.shardOf(user), () -> {
+                    received.computeIfAbsent(user, key -> new CopyOnWriteArrayList<>()).add(sequence);
+                    done.countDown();
+                });
+            }
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        for (String user : users) {
+            assertThat(received.get(user)).isSorted().hasSize(events);
+        }
+    }
+
+    @Test
+    void submit_QueueFull_ShouldShedOnlyThatLane() throws Exception {
+        scheduler.stop();
+        scheduler = start(1, 2);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(DeliveryLane.STANDARD, 0, () -> {
+            running.countDown();
+            await(release);
+        });
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(scheduler.submit(DeliveryLane.STANDARD, 0, () -> { })).isTrue();
+        assertThat(scheduler.submit(DeliveryLane.STANDARD, 0, () -> { })).isTrue();
+        assertThat(scheduler.submit(DeliveryLane.STANDARD, 0, () -> { })).isFalse();
+        assertThat(scheduler.submit(DeliveryLane.PRIORITY, 0, () -> { })).isTrue();
+        release.countDown();
+
+        assertThat(registry.get(FanoutScheduler.LANE_SHED).tag("lane", "standard").counter().count()).isEqualTo(1);
+        assertThat(registry.get(FanoutScheduler.LANE_SHED).tag("lane", "priority").counter().count()).isZero();
+        assertThat(scheduler.awaitIdle(Duration.ofSeconds(5))).isTrue();
+    }
+
+    @Test
+    void submit_WithoutWorkers_ShouldRunOnCallerThread() {
+        FanoutScheduler inline = new FanoutScheduler(0, 256, 1024, 100, 5000, registry);
+        Thread caller = Thread.currentThread();
+        AtomicInteger ranOnCaller = new AtomicInteger();
+
+        inline.submit(DeliveryLane.STANDARD, 0, () -> {
+            if (Thread.currentThread() == caller) {
+                ranOnCaller.incrementAndGet();
+            }
+        });
+
+        assertThat(ranOnCaller.get()).isEqualTo(1);
+    }
+
+    private FanoutScheduler start(int workers, int maxQueuedBatches) {
+        FanoutScheduler started = new FanoutScheduler(workers, 256, maxQueuedBatches, 100, 5000, registry);
+        started.start();
+        return started;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.cs203.smucode.handlers;
+
+import com.cs203.smucode.metrics.ErrorTelemetry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.sns.SnsAsyncClient;
+import software.amazon.awssdk.services.sns.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sns.model.PublishBatchRequest;
+import software.amazon.awssdk.services.sns.model.PublishBatchRequestEntry;
+import software.amazon.awssdk.services.sns.model.PublishBatchResponse;
+import software.amazon.awssdk.services.sns.model.PublishBatchResultEntry;
+import software.amazon.awssdk.services.sns.model.SnsException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OfflineDeliveryTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ErrorTelemetry errorTelemetry = new ErrorTelemetry(registry, 60, 100);
+
+    @Test
+    void enqueue_ShouldPublishInBatchesOfTen() throws InterruptedException {
+        FakeSns sns = new FakeSns(FakeSns::accepted);
+        OfflineDelivery delivery = new OfflineDelivery(true, "arn:topic", 10, 1000, 4, 1024, sns, errorTelemetry, registry);
+        for (int i = 0; i < 25; i++) {
+            assertThat(delivery.enqueue("user" + i, "{\"n\":" + i + "}")).isTrue();
+        }
+        delivery.start();
+        delivery.stop();
+
+        assertThat(sns.requests).extracting(request -> request.publishBatchRequestEntries().size())
+                .containsExactly(10, 10, 5);
+        PublishBatchRequestEntry first = sns.requests.peek().publishBatchRequestEntries().get(0);
+        assertThat(first.message()).isEqualTo("{\"n\":0}");
+        assertThat(first.messageAttributes().get(OfflineDelivery.RECIPIENT_ATTRIBUTE).stringValue()).isEqualTo("user0");
+        assertThat(registry.get(OfflineDelivery.PUBLISHED).counter().count()).isEqualTo(25);
+    }
+
+    @Test
+    void enqueue_PartialBatch_ShouldBeSentAfterLinger() throws InterruptedException {
+        FakeSns sns = new FakeSns(FakeSns::accepted);
+        OfflineDelivery delivery = new OfflineDelivery(true, "arn:topic", 10, 20, 4, 1024, sns, errorTelemetry, registry);
+        delivery.start();
+        delivery.enqueue("alice", "{}");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sns.requests.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(sns.requests).hasSize(1);
+        delivery.stop();
+    }
+
+    @Test
+    void publish_ShouldKeepAtMostMaxInFlightRequests() throws InterruptedException {
+        List<CompletableFuture<PublishBatchResponse>> pending = new ArrayList<>();
+        FakeSns sns = new FakeSns(request -> {
+            CompletableFuture<PublishBatchResponse> future = new CompletableFuture<>();
+            synchronized (pending) {
+                pending.add(future);
+            }
+            return future;
+        });
+        OfflineDelivery delivery = new OfflineDelivery(true, "arn:topic", 10, 0, 2, 1024, sns, errorTelemetry, registry);
+        for (int i = 0; i < 50; i++) {
+            delivery.enqueue("user" + i, "{}");
+        }
+        delivery.start();
+        long started = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sns.requests.size() < 2 && System.nanoTime() < started) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(100);
+
+        assertThat(sns.requests).hasSize(2);
+        assertThat(registry.get(OfflineDelivery.IN_FLIGHT).gauge().value()).isEqualTo(2);
+
+        // Completing requests lets the dispatcher send the rest, two at a time
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sns.requests.size() < 5 && System.nanoTime() < deadline) {
+            synchronized (pending) {
+                pending.forEach(future -> future.complete(FakeSns.acceptedResponse(sns.requests.peek())));
+                pending.clear();
+            }
+            Thread.sleep(10);
+        }
+        assertThat(sns.maxConcurrent.get()).isLessThanOrEqualTo(2);
+        assertThat(sns.requests).hasSize(5);
+        synchronized (pending) {
+            pending.forEach(future -> future.complete(FakeSns.acceptedResponse(sns.requests.peek())));
+        }
+        delivery.stop();
+    }
+
+    @Test
+    void publish_Failures_ShouldBeCountedByReason() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        FakeSns sns = new FakeSns(request -> {
+            if (calls.getAndIncrement() == 0) {
+                return CompletableFuture.failedFuture(SnsException.builder().message("throttled").build());
+            }
+            List<PublishBatchRequestEntry> entries = request.publishBatchRequestEntries();
+            return CompletableFuture.completedFuture(PublishBatchResponse.builder()
+                    .successful(PublishBatchResultEntry.builder().id(entries.get(0).id()).build())
+                    .failed(BatchResultErrorEntry.builder().id(entries.get(1).id()).senderFault(true).build(),
+                            BatchResultErrorEntry.builder().id(entries.get(2).id()).senderFault(false).build())
+                    .build());
+        });
+        OfflineDelivery delivery = new OfflineDelivery(true, "arn:topic", 3, 1000, 1, 1024, sns, errorTelemetry, registry);
+        for (int i = 0; i < 6; i++) {
+            delivery.enqueue("user" + i, "{}");
+        }
+        delivery.start();
+        delivery.stop();
+
+        assertThat(registry.get(OfflineDelivery.FAILED).tag("reason", "request").counter().count()).isEqualTo(3);
+        assertThat(registry.get(OfflineDelivery.FAILED).tag("reason", "sender_fault").counter().count()).isEqualTo(1);
+        assertThat(registry.get(OfflineDelivery.FAILED).tag("reason", "service_fault").counter().count()).isEqualTo(1);
+        assertThat(registry.get(OfflineDelivery.PUBLISHED).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void enqueue_Disabled_ShouldNotQueue() {
+        OfflineDelivery delivery = new OfflineDelivery(false, "", 10, 20, 4, 1024, (SnsAsyncClient) null, errorTelemetry, registry);
+
+        assertThat(delivery.enqueue("alice", "{}")).isFalse();
+    }
+
+    /**
+     * Stand-in for SNS that records every PublishBatch request
+     */
+    private static final class FakeSns implements SnsAsyncClient {
+
+        private final Queue<PublishBatchRequest> requests = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+        private final Function<PublishBatchRequest, CompletableFuture<PublishBatchResponse>> responder;
+
+        FakeSns(Function<PublishBatchRequest, CompletableFuture<PublishBatchResponse>> responder) {
+            this.responder = responder;
+        }
+
+        static CompletableFuture<PublishBatchResponse> accepted(PublishBatchRequest request) {
+            return CompletableFuture.completedFuture(acceptedResponse(request));
+        }
+
+        static PublishBatchResponse acceptedResponse(PublishBatchRequest request) {
+            return PublishBatchResponse.builder()
+                    .successful(request.publishBatchRequestEntries().stream()
+                            .map(entry -> PublishBatchResultEntry.builder().id(entry.id()).build())
+                            .toList())
+                    .build();
+        }
+
+        @Override
+        public CompletableFuture<PublishBatchResponse> publishBatch(PublishBatchRequest request) {
+            requests.add(request);
+            maxConcurrent.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return responder.apply(request).whenComplete((response, error) -> inFlight.decrementAndGet());
+        }
+
+        @Override
+        public String serviceName() {
+            return "sns";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
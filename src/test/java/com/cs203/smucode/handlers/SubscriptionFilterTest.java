@@ -0,0 +1,45 @@
+package com.cs203.smucode.handlers;
+
+import com.cs203.smucode.constants.NotificationCategory;
+import com.cs203.smucode.constants.NotificationType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubscriptionFilterTest {
+
+    @Test
+    void all_ShouldMatchEverything() {
+        for (NotificationCategory category : NotificationCategory.values()) {
+            for (NotificationType type : NotificationType.values()) {
+                assertThat(SubscriptionFilter.ALL.matches(category, type)).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void of_EmptyOrNull_ShouldMatchEverything() {
+        assertThat(SubscriptionFilter.of(null, List.of())).isEqualTo(SubscriptionFilter.ALL);
+    }
+
+    @Test
+    void matches_ShouldNeedBothCategoryAndType() {
+        SubscriptionFilter filter = SubscriptionFilter.of(List.of(NotificationCategory.ALERT),
+                List.of(NotificationType.ROUND_STARTED, NotificationType.ROUND_ENDED));
+
+        assertThat(filter.matches(NotificationCategory.ALERT, NotificationType.ROUND_ENDED)).isTrue();
+        assertThat(filter.matches(NotificationCategory.GENERAL, NotificationType.ROUND_ENDED)).isFalse();
+        assertThat(filter.matches(NotificationCategory.ALERT, NotificationType.SYSTEM)).isFalse();
+    }
+
+    @Test
+    void matches_CategoryOnly_ShouldMatchEveryTypeInIt() {
+        SubscriptionFilter filter = SubscriptionFilter.of(List.of(NotificationCategory.ALERT), null);
+
+        assertThat(filter.categories()).isEqualTo(1L << NotificationCategory.ALERT.ordinal());
+        assertThat(filter.matches(NotificationCategory.ALERT, NotificationType.SYSTEM)).isTrue();
+        assertThat(filter.matches(NotificationCategory.GENERAL, NotificationType.SYSTEM)).isFalse();
+    }
+}
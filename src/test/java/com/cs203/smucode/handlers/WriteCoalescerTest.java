@@ -0,0 +1,233 @@
+package com.cs203.smucode.handlers;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteCoalescerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private WriteCoalescer coalescer;
+
+    @AfterEach
+    void tearDown() {
+        if (coalescer != null) {
+            coalescer.stop();
+        }
+    }
+
+    private WriteCoalescer start(boolean enabled, long windowMillis, int maxEvents) {
+        return start(enabled, windowMillis, maxEvents, 1024);
+    }
+
+    private WriteCoalescer start(boolean enabled, long windowMillis, int maxEvents, int maxQueuedEvents) {
+        coalescer = new WriteCoalescer(enabled, windowMillis, maxEvents, 2, maxQueuedEvents, registry);
+        coalescer.start();
+        return coalescer;
+    }
+
+    @Test
+    void send_Burst_ShouldBeWrittenWithOneFlush() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        start(true, 20, 32);
+
+        coalescer.send(emitter, null, "a", false);
+        coalescer.send(emitter, null, "b", false);
+        coalescer.send(emitter, null, "c", false);
+        assertThat(emitter.writes).isEmpty();
+
+        awaitWrites(emitter, 1);
+        assertThat(emitter.writes).containsExactly("data:a\n\ndata:b\n\ndata:c\n\n");
+        assertThat(registry.get(WriteCoalescer.FLUSHES).tag("trigger", "window").counter().count()).isEqualTo(1);
+        assertThat(registry.get(WriteCoalescer.EVENTS_PER_FLUSH).summary().totalAmount()).isEqualTo(3);
+        assertThat(registry.get(WriteCoalescer.COALESCE_DELAY).timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void send_Immediate_ShouldFlushWaitingEventsFirst() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        start(true, 10_000, 32);
+
+        coalescer.send(emitter, null, "a", false);
+        coalescer.send(emitter, null, "alert", true);
+
+        awaitWrites(emitter, 1);
+        assertThat(emitter.writes).containsExactly("data:a\n\ndata:alert\n\n");
+        assertThat(registry.get(WriteCoalescer.FLUSHES).tag("trigger", "immediate").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void send_MaxEventsWaiting_ShouldFlushWithoutWaitingForWindow() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        start(true, 10_000, 3);
+
+        for (int i = 0; i < 7; i++) {
+            coalescer.send(emitter, null, Integer.toString(i), false);
+            if (i % 3 == 2) {
+                awaitWrites(emitter, i / 3 + 1);
+            }
+        }
+
+        assertThat(emitter.writes).containsExactly("data:0\n\ndata:1\n\ndata:2\n\n", "data:3\n\ndata:4\n\ndata:5\n\n");
+        assertThat(registry.get(WriteCoalescer.FLUSHES).tag("trigger", "full").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void send_WithId_ShouldStampEvent() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        start(true, 10_000, 32);
+
+        coalescer.send(emitter, "2024-11-01T10:00", "a", true);
+
+        awaitWrites(emitter, 1);
+        assertThat(emitter.writes).containsExactly("id:2024-11-01T10:00\ndata:a\n\n");
+    }
+
+    @Test
+    void send_OtherWritesOnStream_ShouldKeepEventOrder() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        start(true, 10_000, 32);
+
+        coalescer.send(emitter, null, "a", false);
+        emitter.send(SseEmitter.event().comment("draining"));
+
+        assertThat(emitter.writes).containsExactly("data:a\n\n:draining\n\n");
+    }
+
+    @Test
+    void send_Disabled_ShouldWriteWithoutWaitingForWindow() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        start(false, 10_000, 32);
+
+        coalescer.send(emitter, null, "a", false);
+        awaitWrites(emitter, 1);
+        coalescer.send(emitter, null, "b", false);
+        awaitWrites(emitter, 2);
+
+        assertThat(emitter.writes).containsExactly("data:a\n\n", "data:b\n\n");
+        assertThat(registry.get(WriteCoalescer.FLUSHES).tag("trigger", "immediate").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void send_StreamStalled_ShouldNotBlockCaller() throws Exception {
+        BlockingEmitter emitter = new BlockingEmitter();
+        start(true, 10_000, 32);
+
+        CompletableFuture<Void> alert = CompletableFuture.runAsync(() -> sendQuietly(emitter, "alert", true));
+        assertThat(alert).succeedsWithin(1, TimeUnit.SECONDS);
+        assertThat(emitter.writing.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> queued = CompletableFuture.runAsync(() -> sendQuietly(emitter, "a", false));
+
+        assertThat(queued).succeedsWithin(1, TimeUnit.SECONDS);
+        emitter.release.countDown();
+    }
+
+    @Test
+    void send_StreamTooFarBehind_ShouldCloseItOnce() throws Exception {
+        BlockingEmitter emitter = new BlockingEmitter();
+        start(false, 10_000, 32, 2);
+        assertThat(coalescer.send(emitter, null, "a", false)).isTrue();
+        assertThat(emitter.writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(coalescer.send(emitter, null, "b", false)).isTrue();
+        assertThat(coalescer.send(emitter, null, "c", false)).isTrue();
+        assertThat(coalescer.send(emitter, null, "d", false)).isFalse();
+        assertThat(coalescer.send(emitter, null, "e", false)).isFalse();
+
+        assertThat(emitter.closed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(emitter.closes).hasValue(1);
+        emitter.release.countDown();
+    }
+
+    @Test
+    void send_OneStreamStalled_ShouldStillFlushOtherWindows() throws Exception {
+        BlockingEmitter stalled = new BlockingEmitter();
+        RecordingEmitter other = new RecordingEmitter();
+        start(true, 5, 32);
+
+        coalescer.send(stalled, null, "a", false);
+        assertThat(stalled.writing.await(5, TimeUnit.SECONDS)).isTrue();
+        coalescer.send(other, null, "b", false);
+
+        awaitWrites(other, 1);
+        assertThat(other.writes).containsExactly("data:b\n\n");
+        stalled.release.countDown();
+    }
+
+    private void sendQuietly(SseEmitter emitter, String message, boolean immediate) {
+        try {
+            coalescer.send(emitter, null, message, immediate);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void awaitWrites(RecordingEmitter emitter, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (emitter.writes.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Blocks its first write until released, like a client that stopped reading
+     */
+    private static class BlockingEmitter extends SubscriberEmitter {
+
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private final AtomicInteger closes = new AtomicInteger();
+
+        BlockingEmitter() {
+            super(Long.MAX_VALUE);
+        }
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> items) throws IOException {
+            writing.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            closes.incrementAndGet();
+            closed.countDown();
+        }
+    }
+
+    /**
+     * Keeps each flush as the text that would have been written to the response
+     */
+    private static class RecordingEmitter extends SubscriberEmitter {
+
+        private final List<String> writes = new CopyOnWriteArrayList<>();
+
+        RecordingEmitter() {
+            super(Long.MAX_VALUE);
+        }
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> items) throws IOException {
+            writes.add(items.stream().map(item -> item.getData().toString()).collect(Collectors.joining()));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.cs203.smucode.lifecycle;
+
+import com.cs203.smucode.admission.SubscribeAdmission;
+import com.cs203.smucode.constants.DeliveryLane;
+import com.cs203.smucode.handlers.FanoutScheduler;
+import com.cs203.smucode.services.impl.NotificationServiceImpl;
+import com.cs203.smucode.utils.RotatingBloomFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.cloud.client.serviceregistry.ServiceRegistry;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ShutdownDrainerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private NotificationServiceImpl notificationService;
+    private FanoutScheduler fanoutScheduler;
+    private SubscribeAdmission subscribeAdmission;
+    private ServiceRegistry<Registration> serviceRegistry;
+    private Registration registration;
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        notificationService = new NotificationServiceImpl(null, null, null,
+                new RotatingBloomFilter(1000, 0.01, TimeUnit.MINUTES.toNanos(10)));
+        fanoutScheduler = new FanoutScheduler(1, 256, 1024, 100, 5000, registry);
+        fanoutScheduler.start();
+        subscribeAdmission = new SubscribeAdmission(3000, 5000, true, 500, 1000, 30, registry);
+        serviceRegistry = mock(ServiceRegistry.class);
+        registration = mock(Registration.class);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        fanoutScheduler.stop();
+    }
+
+    @Test
+    void stop_ShouldDeregisterThenDeliverQueuedThenCloseStreams() {
+        List<RecordingEmitter> emitters = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            RecordingEmitter emitter = new RecordingEmitter("user" + i);
+            notificationService.getEmitters().put("user" + i, emitter);
+            emitters.add(emitter);
+        }
+        // The queued batch cannot finish until the drainer has deregistered
+        CountDownLatch deregistered = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            events.add("deregistered");
+            deregistered.countDown();
+            return null;
+        }).when(serviceRegistry).deregister(registration);
+        AtomicBoolean delivered = new AtomicBoolean();
+        fanoutScheduler.submit(DeliveryLane.STANDARD, 0, () -> {
+            await(deregistered);
+            sleep(50);
+            delivered.set(true);
+            events.add("delivered");
+        });
+
+        drainer(2).stop();
+
+        assertThat(delivered).isTrue();
+        assertThat(events.get(0)).isEqualTo("deregistered");
+        assertThat(events.get(1)).isEqualTo("delivered");
+        assertThat(events).hasSize(2 + emitters.size());
+        for (RecordingEmitter emitter : emitters) {
+            assertThat(emitter.completed).isTrue();
+            assertThat(emitter.frame).containsPattern("id:\\d{4}-\\d{2}-\\d{2}T").contains("retry:");
+        }
+    }
+
+    @Test
+    void stop_ShouldDeferNewSubscriptions() {
+        assertThat(subscribeAdmission.admit()).isZero();
+
+        drainer(500).stop();
+
+        assertThat(subscribeAdmission.admit()).isPositive();
+    }
+
+    private ShutdownDrainer drainer(int waveSize) {
+        return new ShutdownDrainer(notificationService, fanoutScheduler, subscribeAdmission,
+                provider(serviceRegistry), provider(registration), 5, waveSize, 10, 1000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ObjectProvider<T> provider(T bean) {
+        ObjectProvider<T> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(bean);
+        return provider;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class RecordingEmitter extends SseEmitter {
+        private final String username;
+        private String frame = "";
+        private boolean completed;
+
+        RecordingEmitter(String username) {
+            this.username = username;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            Set<DataWithMediaType> parts = builder.build();
+            StringBuilder text = new StringBuilder();
+            for (DataWithMediaType part : parts) {
+                if (MediaType.TEXT_PLAIN.isCompatibleWith(part.getMediaType())) {
+                    text.append(part.getData());
+                }
+            }
+            frame = text.toString();
+            events.add("closed " + username);
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
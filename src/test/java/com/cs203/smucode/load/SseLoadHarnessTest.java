@@ -0,0 +1,336 @@
+package com.cs203.smucode.load;
+
+import com.cs203.smucode.handlers.WriteCoalescer;
+import com.cs203.smucode.services.INotificationService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * In-process SSE load harness.
+ *
+ * <p>Boots the whole application on a random port against H2, with JWT validation
+ * replaced by a decoder that treats the bearer token as the username. It opens
+ * {@code load.clients} concurrent {@code /notifications/subscribe} streams with the
+ * non-blocking JDK {@link HttpClient}, fires {@code load.bursts} bursts of
+ * {@code load.burst-size} broadcasts at {@code POST /notifications/stream}, and
+ * reports throughput, heap per connection and the POST-to-receipt latency seen by
+ * every client, along with how many writes carried those events to the clients.
+ * </p>
+ *
+ * <p>Excluded from the normal build, run it with
+ * {@code mvn test -Pload-test -Dload.clients=2000 -Dload.bursts=10 -Dload.burst-size=20}.
+ * Raise {@code ulimit -n} above twice the client count first, both ends of every
+ * connection live in this JVM. Add {@code -Dnotifications.stream.coalesce.enabled=true}
+ * to compare against coalesced writes.
+ * </p>
+ */
+@Tag("load")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.jpa.show-sql=false",
+                // the harness connects every client at once and does not follow retry hints
+                "notifications.subscribe.admission.enabled=false"
+        }
+)
+@ActiveProfiles("test")
+@Import(SseLoadHarnessTest.LoadTestSecurityConfiguration.class)
+class SseLoadHarnessTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseLoadHarnessTest.class);
+
+    private static final String SYSTEM_TOKEN = "load-system";
+    private static final String MESSAGE_PREFIX = "load:";
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${server.servlet.context-path:}")
+    private String contextPath;
+
+    @Autowired
+    private INotificationService notificationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final int clients = Integer.getInteger("load.clients", 500);
+    private final int bursts = Integer.getInteger("load.bursts", 5);
+    private final int burstSize = Integer.getInteger("load.burst-size", 10);
+    private final Duration timeout = Duration.ofSeconds(Long.getLong("load.timeout-seconds", 120));
+
+    @TestConfiguration
+    static class LoadTestSecurityConfiguration {
+
+        @Bean
+        @Primary
+        JwtDecoder loadTestJwtDecoder() {
+            return token -> new Jwt(token, Instant.now(), Instant.now().plusSeconds(3600),
+                    Map.of("alg", "none"),
+                    Map.of("sub", token, "scope", SYSTEM_TOKEN.equals(token) ? "ROLE_SYSTEM" : "ROLE_USER"));
+        }
+    }
+
+    @Test
+    void subscribersReceiveBroadcastBursts() throws Exception {
+        String baseUrl = "http://localhost:" + port + contextPath + "/notifications";
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        List<String> usernames = IntStream.range(0, clients)
+                .mapToObj(i -> "load-user-" + i)
+                .collect(Collectors.toList());
+
+        int events = bursts * burstSize;
+        long[] sentAt = new long[events];
+        long[] latencies = new long[events * clients];
+        AtomicInteger slots = new AtomicInteger();
+        AtomicInteger received = new AtomicInteger();
+
+        // Connect every client and wait until the server has registered all of them
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        long connectStart = System.nanoTime();
+        List<CompletableFuture<HttpResponse<Void>>> streams = new ArrayList<>(clients);
+        for (String username : usernames) {
+            HttpRequest subscribe = HttpRequest.newBuilder(URI.create(baseUrl + "/subscribe"))
+                    .header("Authorization", "Bearer " + username)
+                    .header("Accept", "text/event-stream")
+                    .GET()
+                    .build();
+            streams.add(httpClient.sendAsync(subscribe,
+                    HttpResponse.BodyHandlers.fromLineSubscriber(new EventLineSubscriber(sentAt, latencies, slots, received))));
+        }
+        awaitCondition(() -> notificationService.getEmitters().size() >= clients, "all clients to connect");
+        long connectNanos = System.nanoTime() - connectStart;
+        System.gc();
+        long heapAfter = memory.getHeapMemoryUsage().getUsed();
+
+        // Fire the bursts, each event is broadcast to every client
+        String recipients = usernames.stream().map(u -> "\"" + u + "\"").collect(Collectors.joining(","));
+        DistributionSummary flushes = meterRegistry.get(WriteCoalescer.EVENTS_PER_FLUSH).summary();
+        long flushesBefore = flushes.count();
+        long syscallsBefore = writeSyscalls();
+        long segmentsBefore = tcpSegmentsSent();
+        long runStart = System.nanoTime();
+        for (int burst = 0; burst < bursts; burst++) {
+            List<CompletableFuture<HttpResponse<String>>> posts = new ArrayList<>(burstSize);
+            for (int i = 0; i < burstSize; i++) {
+                int seq = burst * burstSize + i;
+                HttpRequest post = HttpRequest.newBuilder(URI.create(baseUrl + "/stream"))
+                        .header("Authorization", "Bearer " + SYSTEM_TOKEN)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(payload(seq, recipients)))
+                        .build();
+                sentAt[seq] = System.nanoTime();
+                posts.add(httpClient.sendAsync(post, HttpResponse.BodyHandlers.ofString()));
+            }
+            for (CompletableFuture<HttpResponse<String>> response : posts) {
+                assertThat(response.get(timeout.toSeconds(), TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+            }
+            int expected = (burst + 1) * burstSize * clients;
+            awaitCondition(() -> received.get() >= expected, "burst " + burst + " to be delivered");
+        }
+        long runNanos = System.nanoTime() - runStart;
+        long writes = flushes.count() - flushesBefore;
+        long syscalls = writeSyscalls() - syscallsBefore;
+        long segments = tcpSegmentsSent() - segmentsBefore;
+
+        streams.forEach(stream -> stream.cancel(true));
+
+        report(connectNanos, heapAfter - heapBefore, runNanos, latencies, received.get(), writes, syscalls, segments);
+        assertThat(received.get()).isEqualTo(events * clients);
+    }
+
+    private String payload(int seq, String recipients) {
+        return "{\"tournamentId\":\"" + UUID.randomUUID() + "\","
+                + "\"tournamentName\":\"Load Test Cup\","
+                + "\"message\":\"" + MESSAGE_PREFIX + seq + "\","
+                + "\"type\":\"round_started\","
+                + "\"category\":\"general\","
+                + "\"recipients\":[" + recipients + "]}";
+    }
+
+    private void report(long connectNanos, long connectionHeap, long runNanos, long[] latencies, int received,
+                        long writes, long syscalls, long segments) {
+        long[] sorted = Arrays.copyOf(latencies, received);
+        Arrays.sort(sorted);
+        double seconds = runNanos / 1e9;
+        logger.info("""
+
+                ===== SSE load harness =====
+                clients            : {}
+                events             : {} ({} bursts x {})
+                connect time       : {} ms
+                heap per connection: {} bytes (client and server side, after GC)
+                deliveries         : {}
+                throughput         : {} deliveries/s
+                stream writes      : {} ({} events per write)
+                write syscalls     : {} (whole JVM, from /proc/self/io)
+                TCP segments sent  : {} (whole host, from /proc/net/snmp)
+                latency p50        : {} ms
+                latency p99        : {} ms
+                latency p999       : {} ms
+                latency max        : {} ms
+                ============================""",
+                clients, bursts * burstSize, bursts, burstSize,
+                TimeUnit.NANOSECONDS.toMillis(connectNanos),
+                clients == 0 ? 0 : connectionHeap / clients,
+                received,
+                String.format("%.0f", received / seconds),
+                writes, String.format("%.2f", writes == 0 ? 0 : (double) received / writes),
+                syscalls, segments,
+                millis(percentile(sorted, 0.50)),
+                millis(percentile(sorted, 0.99)),
+                millis(percentile(sorted, 0.999)),
+                millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1]));
+    }
+
+    /**
+     * Write system calls made by this JVM so far, or 0 where /proc is not available
+     */
+    private static long writeSyscalls() {
+        try {
+            return Files.readAllLines(Path.of("/proc/self/io")).stream()
+                    .filter(line -> line.startsWith("syscw:"))
+                    .mapToLong(line -> Long.parseLong(line.substring("syscw:".length()).trim()))
+                    .findFirst()
+                    .orElse(0);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * TCP segments sent by the host so far, or 0 where /proc is not available
+     */
+    private static long tcpSegmentsSent() {
+        try {
+            List<String> tcp = Files.readAllLines(Path.of("/proc/net/snmp")).stream()
+                    .filter(line -> line.startsWith("Tcp:"))
+                    .toList();
+            List<String> names = Arrays.asList(tcp.get(0).split("\\s+"));
+            return Long.parseLong(tcp.get(1).split("\\s+")[names.indexOf("OutSegs")]);
+        } catch (IOException | RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+
+    private void awaitCondition(BooleanSupplier condition, String description)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Timed out waiting for " + description);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Records the POST-to-receipt latency of every {@code data:} line on one stream.
+     */
+    private static class EventLineSubscriber implements Flow.Subscriber<String> {
+
+        private static final String MARKER = "\"message\":\"" + MESSAGE_PREFIX;
+
+        private final long[] sentAt;
+        private final long[] latencies;
+        private final AtomicInteger slots;
+        private final AtomicInteger received;
+
+        EventLineSubscriber(long[] sentAt, long[] latencies, AtomicInteger slots, AtomicInteger received) {
+            this.sentAt = sentAt;
+            this.latencies = latencies;
+            this.slots = slots;
+            this.received = received;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            long now = System.nanoTime();
+            int start = line.startsWith("data:") ? line.indexOf(MARKER) : -1;
+            if (start < 0) {
+                return;
+            }
+            start += MARKER.length();
+            int end = line.indexOf('"', start);
+            int seq = Integer.parseInt(line.substring(start, end));
+            int slot = slots.getAndIncrement();
+            if (slot < latencies.length) {
+                latencies[slot] = now - sentAt[seq];
+            }
+            received.incrementAndGet();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // streams are cancelled at the end of the run
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.cs203.smucode.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ErrorTelemetryTest {
+
+    private SimpleMeterRegistry registry;
+    private ErrorTelemetry errorTelemetry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        errorTelemetry = new ErrorTelemetry(registry, 60, 2);
+    }
+
+    @Test
+    void record_SameTypeAndOrigin_CountsUnderOneFingerprint() {
+        for (int i = 0; i < 5; i++) {
+            errorTelemetry.record("test", failInHere());
+        }
+
+        assertThat(errorTelemetry.count(IllegalStateException.class, "ErrorTelemetryTest.failInHere")).isEqualTo(5);
+        assertThat(registry.get(ErrorTelemetry.ERRORS)
+                .tag("exception", "IllegalStateException")
+                .tag("origin", "ErrorTelemetryTest.failInHere")
+                .counter().count()).isEqualTo(5);
+    }
+
+    @Test
+    void record_DifferentTypes_CountsSeparately() {
+        errorTelemetry.record("test", failInHere());
+        errorTelemetry.record("test", new IOException("Broken pipe"));
+
+        assertThat(errorTelemetry.count(IllegalStateException.class, "ErrorTelemetryTest.failInHere")).isEqualTo(1);
+        assertThat(errorTelemetry.count(IOException.class,
+                "ErrorTelemetryTest.record_DifferentTypes_CountsSeparately")).isEqualTo(1);
+    }
+
+    @Test
+    void record_TooManyFingerprints_FallsBackToOverflowCounter() {
+        errorTelemetry.record("test", failInHere());
+        errorTelemetry.record("test", new IOException());
+        errorTelemetry.record("test", new IllegalArgumentException());
+
+        assertThat(registry.get(ErrorTelemetry.ERRORS).tag("exception", "other").counter().count()).isEqualTo(1);
+    }
+
+    private IllegalStateException failInHere() {
+        return new IllegalStateException("boom");
+    }
+}
@@ -0,0 +1,38 @@
+package com.cs203.smucode.repositories;
+
+import com.cs203.smucode.models.UserInboxVersion;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class InboxVersionRepositoryTest {
+
+    @Autowired
+    private InboxVersionRepository inboxVersionRepository;
+
+    @Test
+    void bump_ShouldCreateMissingRowsAndIncrementExistingOnes() {
+        LocalDateTime first = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        LocalDateTime second = first.plusSeconds(1);
+
+        inboxVersionRepository.bump(List.of("bob", "alice", "alice"), first);
+        inboxVersionRepository.bump(List.of("alice"), second);
+
+        assertThat(inboxVersionRepository.findById("alice")).get()
+                .extracting(UserInboxVersion::getVersion, UserInboxVersion::getChangedAt)
+                .containsExactly(2L, second);
+        assertThat(inboxVersionRepository.findById("bob")).get()
+                .extracting(UserInboxVersion::getVersion, UserInboxVersion::getChangedAt)
+                .containsExactly(1L, first);
+        assertThat(inboxVersionRepository.findById("carol")).isEmpty();
+    }
+}
@@ -0,0 +1,103 @@
+package com.cs203.smucode.repositories;
+
+import com.cs203.smucode.constants.NotificationCategory;
+import com.cs203.smucode.constants.NotificationType;
+import com.cs203.smucode.models.Notification;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class NotificationRepositoryTest {
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Test
+    void findByUsername_ShouldOnlyReturnNotificationsAddressedToUser() {
+        Notification both = save("Round 1 has started", false, "alice", "bob");
+        save("Round 2 has started", false, "bob");
+
+        assertThat(notificationRepository.findByUsername("alice"))
+                .extracting(Notification::getId)
+                .containsExactly(both.getId());
+        assertThat(notificationRepository.findByUsername("carol")).isEmpty();
+    }
+
+    @Test
+    void findByUsernameAndIsRead_ShouldFilterOnReadState() {
+        Notification unread = save("Round 1 has started", false, "alice");
+        save("Round 2 has started", true, "alice");
+
+        assertThat(notificationRepository.findByUsernameAndIsRead("alice", false))
+                .extracting(Notification::getId)
+                .containsExactly(unread.getId());
+    }
+
+    @Test
+    void findChangesSince_ShouldReturnOnlyLaterChangesOldestFirst() {
+        save("Round 1 has started", false, "alice");
+        LocalDateTime since = LocalDateTime.now();
+        Notification first = save("Round 2 has started", false, "alice");
+        Notification second = save("Round 3 has started", false, "alice");
+
+        assertThat(notificationRepository.findChangesSince("alice", since))
+                .extracting(Notification::getId)
+                .containsExactly(first.getId(), second.getId());
+    }
+
+    @Test
+    void findChangesSince_WithLimit_ShouldReturnOldestChanges() {
+        LocalDateTime since = LocalDateTime.now();
+        Notification first = save("Round 1 has started", false, "alice");
+        save("Round 2 has started", false, "alice");
+
+        assertThat(notificationRepository.findChangesSince("alice", since, 1))
+                .extracting(Notification::getId)
+                .containsExactly(first.getId());
+    }
+
+    @Test
+    void streamByUsername_ShouldReturnSameRowsAsFindByUsername() {
+        save("Round 1 has started", false, "alice");
+        save("Round 2 has started", false, "alice", "bob");
+
+        try (Stream<Notification> notifications = notificationRepository.streamByUsername("alice")) {
+            assertThat(notifications).hasSize(2);
+        }
+    }
+
+    @Test
+    void matchesText_ShouldMatchWordPrefixesOnly() {
+        Notification started = save("Round 1 has started", false, "alice");
+        save("Restart of round 2", false, "alice");
+
+        assertThat(notificationRepository.findAll(NotificationSpecifications.matchesText("star")))
+                .extracting(Notification::getId)
+                .containsExactly(started.getId());
+        assertThat(notificationRepository.findAll(NotificationSpecifications.matchesText("tart"))).isEmpty();
+        assertThat(notificationRepository.findAll(NotificationSpecifications.matchesText("smu rou"))).hasSize(2);
+    }
+
+    private Notification save(String message, boolean isRead, String... recipients) {
+        Notification notification = new Notification();
+        notification.setTournamentId(UUID.randomUUID());
+        notification.setTournamentName("SMU Code Open");
+        notification.setMessage(message);
+        notification.setType(NotificationType.ROUND_STARTED);
+        notification.setCategory(NotificationCategory.GENERAL);
+        notification.setCreatedAt(LocalDateTime.now());
+        notification.setIsRead(isRead);
+        notification.setRecipients(List.of(recipients));
+        return notificationRepository.saveAndFlush(notification);
+    }
+}
@@ -0,0 +1,83 @@
+package com.cs203.smucode.repositories;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * SQL of the text search as rendered for Postgres.
+ *
+ * <p>There is no Postgres here, so Hibernate runs with the Postgres dialect against H2 and
+ * the SQL is captured before H2 rejects it. The search must render the same expression as
+ * the {@code idx_notifications_text} index, or Postgres will not use the index.
+ * </p>
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.cs203.smucode.repositories.NotificationSearchPostgresQueryTest$CapturingInspector"
+})
+class NotificationSearchPostgresQueryTest {
+
+    private static final Pattern INDEX_EXPRESSION = Pattern.compile("USING gin \\((.*)\\);");
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Test
+    void matchesText_ShouldRenderTheIndexedExpressionAsAPrefixQuery() throws IOException {
+        CapturingInspector.statements.clear();
+
+        // H2 has no to_tsvector, only the SQL matters
+        catchThrowable(() -> notificationRepository.findAll(NotificationSpecifications.matchesText("Round")));
+
+        String sql = unaliased(CapturingInspector.statements.get(CapturingInspector.statements.size() - 1));
+        assertThat(sql)
+                .contains(unaliased(indexExpression()) + "@@to_tsquery('simple',?||':*')");
+    }
+
+    private static String indexExpression() throws IOException {
+        try (InputStream in = NotificationSearchPostgresQueryTest.class
+                .getResourceAsStream("/META-INF/search-indexes.sql")) {
+            String ddl = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            Matcher matcher = INDEX_EXPRESSION.matcher(ddl);
+            assertThat(matcher.find()).isTrue();
+            return matcher.group(1);
+        }
+    }
+
+    /**
+     * Drops table aliases and whitespace so both sides compare as text
+     */
+    private static String unaliased(String sql) {
+        return sql.replaceAll("\\b\\w+_\\d+\\.", "").replaceAll("\\s+", "");
+    }
+
+    public static class CapturingInspector implements StatementInspector {
+
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+}
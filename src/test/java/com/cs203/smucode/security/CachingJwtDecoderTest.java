@@ -0,0 +1,68 @@
+package com.cs203.smucode.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachingJwtDecoderTest {
+
+    private final AtomicInteger verifications = new AtomicInteger();
+
+    @Test
+    void decode_SameTokenTwice_ShouldVerifyOnce() {
+        CachingJwtDecoder decoder = decoder(token -> jwt(token, Instant.now().plusSeconds(300)));
+
+        Jwt first = decoder.decode("token-a");
+        Jwt second = decoder.decode("token-a");
+
+        assertThat(second).isSameAs(first);
+        assertThat(verifications.get()).isEqualTo(1);
+        decoder.decode("token-b");
+        assertThat(verifications.get()).isEqualTo(2);
+    }
+
+    @Test
+    void decode_ExpiredToken_ShouldNotBeServedFromCache() {
+        CachingJwtDecoder decoder = decoder(token -> jwt(token, Instant.now().minusSeconds(1)));
+
+        decoder.decode("token-a");
+        decoder.decode("token-a");
+
+        assertThat(verifications.get()).isEqualTo(2);
+        assertThat(decoder.size()).isZero();
+    }
+
+    @Test
+    void decode_InvalidToken_ShouldNotBeCached() {
+        CachingJwtDecoder decoder = decoder(token -> {
+            throw new BadJwtException("bad signature");
+        });
+
+        assertThatThrownBy(() -> decoder.decode("forged")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode("forged")).isInstanceOf(BadJwtException.class);
+        assertThat(verifications.get()).isEqualTo(2);
+    }
+
+    private CachingJwtDecoder decoder(JwtDecoder delegate) {
+        JwtDecoder counting = token -> {
+            verifications.incrementAndGet();
+            return delegate.decode(token);
+        };
+        return new CachingJwtDecoder(counting, 100, Duration.ofMinutes(15), new SimpleMeterRegistry());
+    }
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        return new Jwt(token, expiresAt.minusSeconds(600), expiresAt,
+                Map.of("alg", "RS256"), Map.of("sub", "testuser"));
+    }
+}
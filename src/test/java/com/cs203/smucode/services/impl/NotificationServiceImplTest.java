@@ -1,16 +1,22 @@
 package com.cs203.smucode.services.impl;
 
+import com.cs203.smucode.exception.DuplicateNotificationException;
 import com.cs203.smucode.models.Notification;
 import com.cs203.smucode.repositories.NotificationRepository;
+import com.cs203.smucode.services.IInboxVersionService;
 import com.cs203.smucode.constants.NotificationCategory;
 import com.cs203.smucode.constants.NotificationType;
+import com.cs203.smucode.utils.RotatingBloomFilter;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
@@ -19,6 +25,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -33,8 +40,15 @@ class NotificationServiceImplTest {
     @Mock
     private NotificationRepository notificationRepository;
 
+    @Mock
+    private IInboxVersionService inboxVersionService;
+
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     private NotificationServiceImpl notificationService;
 
+    private final RotatingBloomFilter idempotencyKeys = new RotatingBloomFilter(1000, 0.01, TimeUnit.MINUTES.toNanos(10));
+
     private Notification testNotification;
     private final UUID testId = UUID.randomUUID();
     private final UUID testTournamentId = UUID.randomUUID();
@@ -43,7 +57,7 @@ class NotificationServiceImplTest {
 
     @BeforeEach
     void setUp() {
-        notificationService = new NotificationServiceImpl(notificationRepository);
+        notificationService = new NotificationServiceImpl(notificationRepository, inboxVersionService, transactionTemplate, idempotencyKeys);
 
         testNotification = new Notification();
         testNotification.setId(testId);
@@ -59,7 +73,7 @@ class NotificationServiceImplTest {
 
     @Test
     void createNotification_ShouldSetDefaultValuesAndSave() {
-        when(notificationRepository.save(any(Notification.class))).thenReturn(testNotification);
+        when(notificationRepository.saveAndFlush(any(Notification.class))).thenReturn(testNotification);
 
         Notification newNotification = new Notification();
         newNotification.setTournamentId(testTournamentId);
@@ -79,7 +93,75 @@ class NotificationServiceImplTest {
         assertEquals(NotificationType.TOURNAMENT_STARTED, result.getType());
         assertEquals(NotificationCategory.ALERT, result.getCategory());
         assertEquals(testRecipients, result.getRecipients());
-        verify(notificationRepository).save(any(Notification.class));
+        verify(notificationRepository).saveAndFlush(any(Notification.class));
+        verify(inboxVersionService).bump(testRecipients);
+    }
+
+    @Test
+    void createNotification_Scheduled_ShouldNotBumpInboxVersions() {
+        when(notificationRepository.saveAndFlush(any(Notification.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        testNotification.setDeliverAt(LocalDateTime.now().plusMinutes(5));
+
+        notificationService.createNotification(testNotification);
+
+        verify(inboxVersionService, never()).bump(any());
+    }
+
+    @Test
+    void findByIdempotencyKey_UnseenKey_ShouldNotQueryRepository() {
+        assertTrue(notificationService.findByIdempotencyKey("tournament-service", "never-sent").isEmpty());
+        verify(notificationRepository, never()).findByPublisherAndIdempotencyKey(any(), any());
+    }
+
+    @Test
+    void createNotification_RepeatedIdempotencyKey_ShouldThrowWithOriginal() {
+        testNotification.setPublisher("tournament-service");
+        testNotification.setIdempotencyKey("round-3-start");
+        when(notificationRepository.saveAndFlush(any(Notification.class))).thenReturn(testNotification);
+        when(notificationRepository.findByPublisherAndIdempotencyKey("tournament-service", "round-3-start"))
+                .thenReturn(Optional.of(testNotification));
+        notificationService.createNotification(testNotification);
+
+        Notification retry = new Notification();
+        retry.setPublisher("tournament-service");
+        retry.setIdempotencyKey("round-3-start");
+        retry.setRecipients(testRecipients);
+
+        assertThatThrownBy(() -> notificationService.createNotification(retry))
+                .isInstanceOf(DuplicateNotificationException.class)
+                .extracting("existing")
+                .isEqualTo(testNotification);
+        verify(notificationRepository, times(1)).saveAndFlush(any(Notification.class));
+    }
+
+    @Test
+    void createNotification_SameKeyOtherPublisher_ShouldSaveBoth() {
+        testNotification.setPublisher("tournament-service");
+        testNotification.setIdempotencyKey("round-3-start");
+        when(notificationRepository.saveAndFlush(any(Notification.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        notificationService.createNotification(testNotification);
+
+        Notification other = new Notification();
+        other.setPublisher("matchmaking-service");
+        other.setIdempotencyKey("round-3-start");
+        other.setRecipients(testRecipients);
+
+        assertEquals(other, notificationService.createNotification(other));
+        verify(notificationRepository, times(2)).saveAndFlush(any(Notification.class));
+        verify(notificationRepository, never()).findByPublisherAndIdempotencyKey(eq("matchmaking-service"), any());
+    }
+
+    @Test
+    void createNotification_KeyUsedBeforeRestart_ShouldFallBackToUniqueIndex() {
+        testNotification.setPublisher("tournament-service");
+        testNotification.setIdempotencyKey("round-3-start");
+        when(notificationRepository.saveAndFlush(any(Notification.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_notifications_publisher_idempotency_key"));
+        when(notificationRepository.findByPublisherAndIdempotencyKey("tournament-service", "round-3-start"))
+                .thenReturn(Optional.of(testNotification));
+
+        assertThatThrownBy(() -> notificationService.createNotification(testNotification))
+                .isInstanceOf(DuplicateNotificationException.class);
     }
 
     @Test
@@ -140,6 +222,7 @@ class NotificationServiceImplTest {
         assertEquals(testRecipients, result.getRecipients());
         verify(notificationRepository).findById(testId);
         verify(notificationRepository).save(any(Notification.class));
+        verify(inboxVersionService).bump(testRecipients);
     }
 
     @Test
@@ -206,7 +289,7 @@ class NotificationServiceImplTest {
     void subscribe_EmitterError_RemovesEmitterAndCompletes() {
         // Arrange
         NotificationRepository mockRepository = mock(NotificationRepository.class);
-        NotificationServiceImpl mockNotiService = new NotificationServiceImpl(mockRepository);
+        NotificationServiceImpl mockNotiService = new NotificationServiceImpl(mockRepository, inboxVersionService, transactionTemplate, idempotencyKeys);
         String testUsername = "testUser";
 
         // Act
@@ -229,7 +312,7 @@ class NotificationServiceImplTest {
     void subscribe_EmitterComplete_RemovesEmitter() {
         // Arrange
         NotificationRepository mockRepository = mock(NotificationRepository.class);
-        NotificationServiceImpl mockNotiService = new NotificationServiceImpl(mockRepository);
+        NotificationServiceImpl mockNotiService = new NotificationServiceImpl(mockRepository, inboxVersionService, transactionTemplate, idempotencyKeys);
         String testUsername = "testUser";
 
         // Act
@@ -253,7 +336,7 @@ class NotificationServiceImplTest {
     void subscribe_EmitterTimeout_RemovesEmitter() {
         // Arrange
         NotificationRepository mockRepository = mock(NotificationRepository.class);
-        NotificationServiceImpl mockNotiService = new NotificationServiceImpl(mockRepository);
+        NotificationServiceImpl mockNotiService = new NotificationServiceImpl(mockRepository, inboxVersionService, transactionTemplate, idempotencyKeys);
         String testUsername = "testUser";
 
         // Act
@@ -0,0 +1,98 @@
+package com.cs203.smucode.templates;
+
+import com.cs203.smucode.exception.ApiRequestException;
+import com.cs203.smucode.models.Notification;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.i18n.LocaleContextHolder;
+
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NotificationTemplatesTest {
+
+    private final NotificationTemplates templates = new NotificationTemplates(new TemplateProperties("en", Map.of(
+            "match-ready", Map.of(
+                    "en", "{player} vs {opponent} in round {round} of {tournament}",
+                    "fr", "Manche {round} de {tournament} : {opponent} contre {player}"))));
+
+    @Test
+    void bind_ShouldStoreOnlyParameterValuesInPlaceholderOrder() {
+        Notification notification = notification();
+
+        templates.bind(notification, "match-ready", Map.of("round", "3", "opponent", "bob", "player", "alice"));
+
+        assertThat(notification.getMessage()).isNull();
+        assertThat(notification.getTemplateId()).isEqualTo("match-ready");
+        assertThat(notification.getTemplateParams()).isEqualTo("alice\u001fbob\u001f3");
+    }
+
+    @Test
+    void render_ShouldUseRequestedLocaleAndFallBackToDefault() {
+        Notification notification = notification();
+        templates.bind(notification, "match-ready", Map.of("round", "3", "opponent", "bob", "player", "alice"));
+
+        assertThat(templates.render(notification, null)).isEqualTo("alice vs bob in round 3 of SMU Code Open");
+        assertThat(templates.render(notification, Locale.CANADA_FRENCH))
+                .isEqualTo("Manche 3 de SMU Code Open : bob contre alice");
+        assertThat(templates.render(notification, Locale.JAPANESE))
+                .isEqualTo("alice vs bob in round 3 of SMU Code Open");
+    }
+
+    @Test
+    void renderDefault_ShouldIgnoreCurrentRequestLocale() {
+        Notification notification = notification();
+        templates.bind(notification, "match-ready", Map.of("round", "3", "opponent", "bob", "player", "alice"));
+
+        LocaleContextHolder.setLocale(Locale.FRENCH);
+        try {
+            assertThat(templates.render(notification)).isEqualTo("Manche 3 de SMU Code Open : bob contre alice");
+            assertThat(templates.renderDefault(notification)).isEqualTo("alice vs bob in round 3 of SMU Code Open");
+        } finally {
+            LocaleContextHolder.resetLocaleContext();
+        }
+    }
+
+    @Test
+    void render_PlainMessage_ShouldReturnItUnchanged() {
+        Notification notification = notification();
+        notification.setMessage("Tournament is starting soon!");
+
+        assertThat(templates.render(notification)).isEqualTo("Tournament is starting soon!");
+    }
+
+    @Test
+    void bind_UnknownTemplateOrMissingParameter_ShouldBeRejected() {
+        assertThatThrownBy(() -> templates.bind(notification(), "nope", Map.of()))
+                .isInstanceOf(ApiRequestException.class);
+        assertThatThrownBy(() -> templates.bind(notification(), "match-ready", Map.of("round", "3")))
+                .isInstanceOf(ApiRequestException.class)
+                .hasMessageContaining("player");
+    }
+
+    @Test
+    void bind_ParametersLongerThanColumn_ShouldBeRejected() {
+        String name = "x".repeat(NotificationTemplates.MAX_PARAMS_LENGTH);
+
+        assertThatThrownBy(() -> templates.bind(notification(), "match-ready",
+                Map.of("round", "3", "opponent", "bob", "player", name)))
+                .isInstanceOf(ApiRequestException.class)
+                .hasMessageContaining("longer than");
+    }
+
+    @Test
+    void constructor_LocaleWithExtraPlaceholder_ShouldFail() {
+        assertThatThrownBy(() -> new NotificationTemplates(new TemplateProperties("en", Map.of(
+                "round-started", Map.of("en", "Round {round} has started", "fr", "Manche {round} de {stage}")))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("fr");
+    }
+
+    private static Notification notification() {
+        Notification notification = new Notification();
+        notification.setTournamentName("SMU Code Open");
+        return notification;
+    }
+}
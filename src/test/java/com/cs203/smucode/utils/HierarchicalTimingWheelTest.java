@@ -0,0 +1,65 @@
+package com.cs203.smucode.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HierarchicalTimingWheelTest {
+
+    @Test
+    void add_AlreadyDue_ShouldRefuse() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, 1000);
+
+        assertThat(wheel.add("past", 900)).isFalse();
+        assertThat(wheel.add("now", 1000)).isFalse();
+        assertThat(wheel.add("next tick", 1001)).isTrue();
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+
+    @Test
+    void advance_ShouldReleaseAtTheFollowingTickNeverEarly() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, 0);
+        wheel.add("a", 25);
+        wheel.add("b", 30);
+
+        assertThat(wheel.nextExpiration()).isEqualTo(30);
+        assertThat(wheel.advance(29)).isEmpty();
+        assertThat(wheel.advance(30)).containsExactlyInAnyOrder("a", "b");
+        assertThat(wheel.size()).isZero();
+        assertThat(wheel.nextExpiration()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void advance_BeyondTheFirstWheel_ShouldCascadeThroughOverflowWheels() {
+        // 8 buckets of 10 ms, so anything past 80 ms goes to an overflow wheel and past 640 ms to the next
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(10, 8, 0);
+        List<Long> times = List.of(15L, 95L, 350L, 700L, 5_000L, 123_456L);
+        times.forEach(time -> wheel.add(time, time));
+
+        List<Long> releasedAt = new ArrayList<>();
+        for (long now = 0; now <= 130_000; now += 5) {
+            for (Long time : wheel.advance(now)) {
+                assertThat(now).as("release of %d", time).isBetween(time, time + 10);
+                releasedAt.add(time);
+            }
+        }
+
+        assertThat(releasedAt).containsExactlyElementsOf(times);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void advance_LongGap_ShouldReleaseEverythingDueAtOnce() {
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(100, 512, 0);
+        for (int i = 0; i < 10_000; i++) {
+            wheel.add(i, 1_000 + i * 10L);
+        }
+
+        assertThat(wheel.advance(50_000)).hasSize(4_901);
+        assertThat(wheel.size()).isEqualTo(5_099);
+        assertThat(wheel.advance(200_000)).hasSize(5_099);
+    }
+}